@@ -7,6 +7,7 @@ import com.spark.electronics_store.repository.ProductPhotoRepository;
 import com.spark.electronics_store.repository.ProductRepository;
 import com.spark.electronics_store.repository.UserSyncRepository;
 import com.spark.electronics_store.service.BrandRequestService;
+import com.spark.electronics_store.util.Money;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
@@ -130,7 +131,7 @@ public class ElectronicsStoreApplication {
 			p.setName(name);
 			p.setSlug(slug);
 			p.setDescription(desc);
-			p.setPrice(price);
+			p.setPriceMinor(price != null ? Money.toMinor(price, currency) : null);
 			p.setCurrency(currency);
 			p.setCategory(category);
 			p.setStatus(status == null ? ProductStatus.ACTIVE : status);
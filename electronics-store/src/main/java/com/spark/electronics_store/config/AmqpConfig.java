@@ -0,0 +1,112 @@
+package com.spark.electronics_store.config;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.ExchangeBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * User events shared with user-management, over one durable topic exchange whose routing key is
+ * the event type. The store consumes user upserts and deletes from its own queue and publishes
+ * role changes (brand approval).
+ *
+ * Events the store can never apply end up in {@code store.user-sync.dlq} through the dead-letter
+ * exchange: the listener republishes single poison events there, and a batch the listener
+ * rejects is dead-lettered by the broker instead of being redelivered forever.
+ *
+ * {@code store.user-sync} is a single-active-consumer queue: every store instance subscribes,
+ * but the broker delivers to one of them at a time and fails over when it goes away. Adding the
+ * argument to an existing queue is refused by the broker, so the queue has to be deleted (once
+ * drained) before the first deploy that declares it this way.
+ */
+@Configuration
+public class AmqpConfig {
+
+    public static final String USER_EVENTS_EXCHANGE = "user.events";
+    public static final String USER_UPSERTED_KEY = "user.upserted";
+    public static final String USER_DELETED_KEY = "user.deleted";
+    public static final String ROLE_CHANGED_KEY = "user.role-changed";
+    public static final String USER_SYNC_QUEUE = "store.user-sync";
+    public static final String USER_EVENTS_DLX = "user.events.dlx";
+    public static final String USER_SYNC_DLQ = "store.user-sync.dlq";
+    public static final String USER_EVENTS_LISTENER_FACTORY = "userEventsListenerFactory";
+
+    @Bean
+    public TopicExchange userEventsExchange() {
+        return ExchangeBuilder.topicExchange(USER_EVENTS_EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public DirectExchange userEventsDeadLetterExchange() {
+        return ExchangeBuilder.directExchange(USER_EVENTS_DLX).durable(true).build();
+    }
+
+    @Bean
+    public Queue userSyncQueue() {
+        return QueueBuilder.durable(USER_SYNC_QUEUE)
+                .singleActiveConsumer()
+                .deadLetterExchange(USER_EVENTS_DLX)
+                .deadLetterRoutingKey(USER_SYNC_DLQ)
+                .build();
+    }
+
+    @Bean
+    public Queue userSyncDeadLetterQueue() {
+        return QueueBuilder.durable(USER_SYNC_DLQ).build();
+    }
+
+    @Bean
+    public Binding userSyncDeadLetterBinding(Queue userSyncDeadLetterQueue, DirectExchange userEventsDeadLetterExchange) {
+        return BindingBuilder.bind(userSyncDeadLetterQueue).to(userEventsDeadLetterExchange).with(USER_SYNC_DLQ);
+    }
+
+    @Bean
+    public Binding userUpsertedBinding(Queue userSyncQueue, TopicExchange userEventsExchange) {
+        return BindingBuilder.bind(userSyncQueue).to(userEventsExchange).with(USER_UPSERTED_KEY);
+    }
+
+    @Bean
+    public Binding userDeletedBinding(Queue userSyncQueue, TopicExchange userEventsExchange) {
+        return BindingBuilder.bind(userSyncQueue).to(userEventsExchange).with(USER_DELETED_KEY);
+    }
+
+    /**
+     * Batch consumer for user events. The listener gets up to {@code batch-size} messages at once,
+     * or fewer after {@code receive-timeout-ms} without a new one. The prefetch is at least one
+     * batch, so the next batch is already buffered while the current one is written. One
+     * consumer per instance, and one active across instances (see {@link #userSyncQueue}), so
+     * events mostly arrive in publish order, but not always: a requeued batch comes back behind
+     * the messages already prefetched. Order is therefore enforced where the events are applied,
+     * by the version each one carries (see {@link com.spark.electronics_store.service.UserEventListener}).
+     * A failed batch is rejected without requeue (so dead-lettered) unless the listener asks for
+     * an immediate requeue.
+     */
+    @Bean(USER_EVENTS_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory userEventsListenerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${sync.amqp.batch-size:100}") int batchSize,
+            @Value("${sync.amqp.prefetch:250}") int prefetch,
+            @Value("${sync.amqp.receive-timeout-ms:200}") long receiveTimeoutMs,
+            @Value("${sync.amqp.auto-startup:true}") boolean autoStartup) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(Math.max(1, batchSize));
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setDefaultRequeueRejected(false);
+        factory.setAutoStartup(autoStartup);
+        return factory;
+    }
+}
@@ -19,8 +19,8 @@ public class CorsConfig {
                 List.of("http://localhost:3000", "http://localhost:5173") // frontend origins
         );
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "Idempotency-Key", "Checkout-Ticket"));
+        config.setExposedHeaders(List.of("Authorization", "X-Next-Cursor"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L); // cache preflight
 
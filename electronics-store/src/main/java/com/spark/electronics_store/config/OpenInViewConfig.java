@@ -0,0 +1,33 @@
+package com.spark.electronics_store.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-in-view for every route except photo byte serving (spring.jpa.open-in-view=false turns
+ * off Boot's own registration). An open EntityManager holds its connection until the response
+ * is written, so a slow client downloading a large photo would pin one of the pool's connections;
+ * those routes read bytes slice by slice in their own short queries instead. The other excluded
+ * photo routes do all their work in service transactions.
+ */
+@Configuration
+public class OpenInViewConfig implements WebMvcConfigurer {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public OpenInViewConfig(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns("/brands/*/products/*/photos/*", "/brands/*/products/*/photos/*/raw");
+    }
+}
@@ -9,7 +9,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
@@ -33,9 +35,27 @@ public class SecurityConfig {
         return http.build();
     }
 
-    // 2. Default chain for everything else: JWT resource server
+    // 2. Public media (photo/logo bytes): no JWT decoding, no session, and no
+    //    no-store headers so browsers and CDNs can keep the immutable bytes
     @Bean
     @Order(2)
+    public SecurityFilterChain publicMediaSecurityChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatchers(m -> m.requestMatchers(HttpMethod.GET,
+                        "/brands/*/products/*/photos/*",
+                        "/brands/*/products/*/photos/*/raw",
+                        "/brands/requests/*/logo"))
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .requestCache(rc -> rc.disable())
+                .headers(h -> h.cacheControl(cc -> cc.disable()))
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+        return http.build();
+    }
+
+    // 3. Default chain for everything else: JWT resource server
+    @Bean
+    @Order(3)
     public SecurityFilterChain defaultSecurityChain(HttpSecurity http) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
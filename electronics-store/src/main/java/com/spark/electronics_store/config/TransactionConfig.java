@@ -0,0 +1,20 @@
+package com.spark.electronics_store.config;
+
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+
+/**
+ * JpaTransactionManager refuses {@code PROPAGATION_NESTED} unless told otherwise. The savepoints
+ * only cover the JDBC connection, not the persistence context, so the one caller (group commit in
+ * OrderIntakePipeline) flushes inside each savepoint and clears the context after a rollback.
+ */
+@Configuration
+public class TransactionConfig {
+
+    @Bean
+    TransactionManagerCustomizer<AbstractPlatformTransactionManager> allowSavepoints() {
+        return transactionManager -> transactionManager.setNestedTransactionAllowed(true);
+    }
+}
@@ -0,0 +1,94 @@
+package com.spark.electronics_store.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the bytes of upload bodies being received at once (multipart forms for products, photos
+ * and brand logos, plus resumable photo chunks). The declared Content-Length is reserved from a
+ * global budget before the body is parsed; when the budget is exhausted the request is turned
+ * away with 503 + Retry-After instead of queueing more bytes in memory and temp files.
+ * A body without Content-Length reserves the multipart request-size limit.
+ */
+@Component
+@Slf4j
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private final int budget;
+    private final long unknownLengthBytes;
+    private final String retryAfterSeconds;
+    private final Semaphore permits;
+    private final Counter rejected;
+
+    public UploadAdmissionFilter(@Value("${upload.admission.max-in-flight-bytes:134217728}") long maxInFlightBytes,
+                                 @Value("${spring.servlet.multipart.max-request-size:32MB}") DataSize maxRequestSize,
+                                 @Value("${upload.admission.retry-after-seconds:5}") int retryAfterSeconds,
+                                 MeterRegistry registry) {
+        this.budget = (int) Math.min(Integer.MAX_VALUE, maxInFlightBytes);
+        this.unknownLengthBytes = maxRequestSize.toBytes();
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        this.permits = new Semaphore(budget);
+
+        Gauge.builder("upload.inflight.bytes", permits, p -> budget - p.availablePermits())
+                .baseUnit("bytes").description("Upload body bytes admitted and not yet finished")
+                .register(registry);
+        this.rejected = Counter.builder("upload.admission.rejected")
+                .description("Uploads turned away because the in-flight byte budget was exhausted")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"POST".equals(method) && !"PUT".equals(method)) return true;
+        String contentType = request.getContentType();
+        if (contentType == null) return true;
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return !type.isCompatibleWith(MediaType.MULTIPART_FORM_DATA)
+                    && !type.isCompatibleWith(MediaType.APPLICATION_OCTET_STREAM);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long declared = request.getContentLengthLong();
+        long size = declared >= 0 ? declared : unknownLengthBytes;
+        if (size > budget) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "Upload larger than the server accepts");
+            return;
+        }
+        int reserved = (int) size;
+        if (!permits.tryAcquire(reserved)) {
+            rejected.increment();
+            log.debug("Rejected {} {} ({} bytes): upload budget exhausted", request.getMethod(), request.getRequestURI(), size);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many uploads in progress");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release(reserved);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.spark.electronics_store.controller;
+
+import com.spark.electronics_store.dto.BrandAnalyticsResponse;
+import com.spark.electronics_store.security.BrandAuthorizationService;
+import com.spark.electronics_store.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/brands/{brandId}/analytics")
+@RequiredArgsConstructor
+public class BrandAnalyticsController {
+
+    private final SalesRollupService salesRollupService;
+    private final BrandAuthorizationService authService;
+
+    // reads only the daily rollups; defaults to the last 30 days (UTC)
+    @GetMapping
+    public ResponseEntity<BrandAnalyticsResponse> analytics(@PathVariable UUID brandId,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                            Authentication auth) {
+        authService.authorizeBrandAccess(brandId, auth);
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(29);
+        return ResponseEntity.ok(salesRollupService.analytics(brandId, start, end));
+    }
+}
@@ -2,14 +2,17 @@ package com.spark.electronics_store.controller;
 
 import com.spark.electronics_store.dto.BrandRequestCreateDto;
 import com.spark.electronics_store.dto.BrandRequestResponse;
+import com.spark.electronics_store.dto.BrandResponse;
 import com.spark.electronics_store.dto.RejectBrandRequestDto;
 import com.spark.electronics_store.model.*;
 import com.spark.electronics_store.repository.BrandRepository;
 import com.spark.electronics_store.repository.UserSyncRepository;
 import com.spark.electronics_store.security.BrandAuthorizationService;
+import com.spark.electronics_store.service.BrandDirectory;
 import com.spark.electronics_store.service.BrandRequestService;
 import com.spark.electronics_store.service.BrandService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -18,10 +21,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import jakarta.validation.Valid;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -45,6 +50,10 @@ public class BrandController {
     private final BrandRepository brandRepository;
     private final UserSyncRepository userSyncRepository;
     private final BrandRequestService brandRequestService;
+    private final BrandDirectory brandDirectory;
+
+    private static final CacheControl LOGO_CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
 
     // ========== Brands ==========
 
@@ -77,15 +86,16 @@ public class BrandController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Brand>> listBrands(@RequestParam(value = "q", required = false) String q,
-                                                  Authentication authentication) {
-        List<Brand> brands;
-        if (q == null || q.isBlank()) {
-            brands = brandRepository.findAll();
-        } else {
-            brands = brandRepository.findByNameContainingIgnoreCaseOrSlugContainingIgnoreCase(q, q);
+    public ResponseEntity<List<BrandResponse>> listBrands(@RequestParam(value = "q", required = false) String q,
+                                                          Authentication authentication,
+                                                          ServletWebRequest webRequest) {
+        BrandDirectory.Snapshot directory = brandDirectory.snapshot();
+        // any brand change produces a new snapshot ETag, so clients can always revalidate cheaply
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (webRequest.checkNotModified(directory.etag())) {
+            return null;
         }
-        return ResponseEntity.ok(brands);
+        return ResponseEntity.ok(directory.search(q));
     }
 
     // ========== Brand Requests ==========
@@ -195,12 +205,17 @@ public class BrandController {
     }
 
     @GetMapping("/requests/{id}/logo")
-    public ResponseEntity<byte[]> getRequestLogo(@PathVariable UUID id) {
+    public ResponseEntity<Resource> getRequestLogo(@PathVariable UUID id, ServletWebRequest webRequest) {
         var stored = brandRequestService.getLogo(id);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType(stored.contentType));
-        headers.setCacheControl(CacheControl.noCache());
-        return new ResponseEntity<>(stored.bytes, headers, OK);
+        // a logo can be replaced, so clients revalidate; the content hash makes that a cheap 304
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, LOGO_CACHE_CONTROL.getHeaderValue());
+        if (webRequest.checkNotModified("\"" + stored.contentHash() + "\"")) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(stored.contentType()))
+                .contentLength(stored.size())
+                .body(stored.body());
     }
     @DeleteMapping("/{brandId}/assign-seller/{userId}")
     public ResponseEntity<Void> clearSellerBrand(@PathVariable UUID brandId,
@@ -218,10 +233,16 @@ public class BrandController {
     }
     // in BrandController
     @GetMapping("/slug/{slug}")
-    public ResponseEntity<Brand> getBySlug(@PathVariable String slug) {
-        return brandRepository.findBySlug(slug)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<BrandResponse> getBySlug(@PathVariable String slug, ServletWebRequest webRequest) {
+        Optional<BrandResponse> brand = brandDirectory.snapshot().findBySlug(slug);
+        if (brand.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        if (webRequest.checkNotModified("\"" + brand.get().id() + "-" + brand.get().version() + "\"")) {
+            return null;
+        }
+        return ResponseEntity.ok(brand.get());
     }
 
 }
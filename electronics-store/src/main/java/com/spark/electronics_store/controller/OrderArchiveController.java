@@ -0,0 +1,81 @@
+package com.spark.electronics_store.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spark.electronics_store.security.BrandAuthorizationService;
+import com.spark.electronics_store.service.OrderPartitionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/** Admin read access to order months moved out of the database (see {@link OrderPartitionService}). */
+@RestController
+@RequestMapping("/admin/order-archive")
+@RequiredArgsConstructor
+public class OrderArchiveController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final OrderPartitionService partitionService;
+    private final BrandAuthorizationService authService;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping
+    public ResponseEntity<List<String>> months(Authentication auth) {
+        authService.requireAdmin(auth);
+        return ResponseEntity.ok(partitionService.archivedMonths());
+    }
+
+    /**
+     * Rows of {@code orders} or {@code order_items} archived for {@code month} (yyyy-MM), one JSON
+     * object per line with the table's column names. Optional filters: orderId (id of an order,
+     * order_id of a line) and buyerId (orders only). Streamed: the file is never held in memory.
+     */
+    @GetMapping("/{month}/{table}")
+    public ResponseEntity<StreamingResponseBody> read(@PathVariable String month,
+                                                      @PathVariable String table,
+                                                      @RequestParam(required = false) UUID orderId,
+                                                      @RequestParam(required = false) UUID buyerId,
+                                                      Authentication auth) throws IOException {
+        authService.requireAdmin(auth);
+        InputStream in = partitionService.openArchive(table, month)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No archive for " + table + " " + month));
+
+        String orderField = table.equals("orders") ? "id" : "order_id";
+        StreamingResponseBody body = out -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (orderId == null && buyerId == null) {
+                        write(out, line);
+                        continue;
+                    }
+                    JsonNode row = objectMapper.readTree(line);
+                    if (orderId != null && !orderId.toString().equals(row.path(orderField).asText())) continue;
+                    if (buyerId != null && !buyerId.toString().equals(row.path("buyer_id").asText())) continue;
+                    write(out, line);
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private static void write(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+}
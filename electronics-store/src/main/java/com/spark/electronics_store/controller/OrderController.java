@@ -1,25 +1,34 @@
 // src/main/java/com/spark/electronics_store/controller/OrderController.java
 package com.spark.electronics_store.controller;
 
+import com.spark.electronics_store.dto.order.CheckoutTicketResponse;
 import com.spark.electronics_store.dto.order.OrderCreateRequest;
 import com.spark.electronics_store.dto.order.OrderDto;
 import com.spark.electronics_store.mapper.OrderDtoMapper;
 import com.spark.electronics_store.model.Order;
 import com.spark.electronics_store.model.Role;
 import com.spark.electronics_store.model.UserSync;
-import com.spark.electronics_store.repository.ProductRepository;
 import com.spark.electronics_store.repository.UserSyncRepository;
+import com.spark.electronics_store.service.BuyerOrderHistoryService;
+import com.spark.electronics_store.service.CheckoutWaitingRoom;
+import com.spark.electronics_store.service.OrderIdempotencyService;
+import com.spark.electronics_store.service.OrderExportService;
+import com.spark.electronics_store.service.OrderIntakePipeline;
 import com.spark.electronics_store.service.OrderService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.net.URI;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/orders")
@@ -27,70 +36,130 @@ import java.util.stream.Collectors;
 @CrossOrigin(
         origins = {"http://localhost:3000", "http://localhost:5173"},
         allowCredentials = "true",
-        allowedHeaders = {"Authorization", "Content-Type"},
+        allowedHeaders = {"Authorization", "Content-Type", "Idempotency-Key", "Checkout-Ticket"},
+        exposedHeaders = {"X-Next-Cursor"},
         methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS}
 )
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderIdempotencyService idempotencyService;
+    private final OrderIntakePipeline intakePipeline;
+    private final CheckoutWaitingRoom waitingRoom;
+    private final BuyerOrderHistoryService buyerOrderHistory;
+    private final OrderExportService exportService;
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     private final UserSyncRepository userSyncRepository;
-    private final ProductRepository productRepository;
     private final OrderDtoMapper mapper;
 
+    /**
+     * Creates the order if a checkout slot is free (or the Checkout-Ticket header carries a READY
+     * ticket); otherwise answers 202 with a waiting-room ticket to poll. A retry whose
+     * Idempotency-Key already has an order gets that order back without queueing.
+     */
     @PostMapping
-    public ResponseEntity<OrderDto> create(@RequestBody OrderCreateRequest req,
-                                           @AuthenticationPrincipal Jwt jwt) {
+    public ResponseEntity<?> create(@RequestBody OrderCreateRequest req,
+                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                    @RequestHeader(value = "Checkout-Ticket", required = false) UUID ticketId,
+                                    @AuthenticationPrincipal Jwt jwt) {
         UUID buyerId = resolveBuyerId(jwt)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
         req.setBuyerId(buyerId);
-        Order created = orderService.create(req);
-        return ResponseEntity.ok(mapper.toDto(created));
-    }
 
-    @GetMapping("/buyer/{buyerId}")
-    public ResponseEntity<List<OrderDto>> byBuyer(@PathVariable UUID buyerId) {
-        var list = orderService.listByBuyer(buyerId).stream().map(mapper::toDto).toList();
-        return ResponseEntity.ok(list);
+        if (idempotencyKey != null) {
+            Optional<OrderDto> done = idempotencyService.completed(buyerId, idempotencyKey, req);
+            if (done.isPresent()) return ResponseEntity.ok(done.get());
+        }
+
+        Optional<CheckoutWaitingRoom.Admission> admission = waitingRoom.tryAdmit(buyerId, ticketId);
+        if (admission.isEmpty()) {
+            CheckoutTicketResponse ticket = waitingRoom.enqueue(buyerId, ticketId);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/orders/checkout-tickets/" + ticket.ticketId()))
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ticket.retryAfterSeconds()))
+                    .body(ticket);
+        }
+        try (CheckoutWaitingRoom.Admission slot = admission.get()) {
+            return ResponseEntity.ok(createAdmitted(req, buyerId, idempotencyKey));
+        }
     }
 
-    /** NEW: brand-facing orders (items filtered to the brand, totals recomputed) */
-    @GetMapping("/brand/{brandId}")
-    public ResponseEntity<List<OrderDto>> byBrand(@PathVariable UUID brandId,
-                                                  @AuthenticationPrincipal Jwt jwt) {
-        // authn / authz: must be BRAND_SELLER of this brand
-        UUID caller = resolveBuyerId(jwt)
+    /** Waiting-room poll: in-memory only, safe to call every couple of seconds. */
+    @GetMapping("/checkout-tickets/{ticketId}")
+    public ResponseEntity<CheckoutTicketResponse> checkoutTicket(@PathVariable UUID ticketId,
+                                                                 @AuthenticationPrincipal Jwt jwt) {
+        UUID buyerId = resolveBuyerId(jwt)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
-        UserSync user = userSyncRepository.findById(caller)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+        return waitingRoom.poll(buyerId, ticketId)
+                .map(t -> ResponseEntity.ok()
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(t.retryAfterSeconds()))
+                        .body(t))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 
-        if (user.isDeleted() || user.getRole() != Role.BRAND_SELLER) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only brand sellers can view brand orders");
+    private OrderDto createAdmitted(OrderCreateRequest req, UUID buyerId, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            // retries with the same key get the first attempt's order back
+            return idempotencyService.create(buyerId, idempotencyKey, req);
         }
-        if (user.getBrand() == null || !brandId.equals(user.getBrand().getId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Brand mismatch");
+        if (intakePipeline.isEnabled()) {
+            // group commit: joins the next batch instead of running its own transaction
+            return intakePipeline.create(req);
         }
+        Order created = orderService.create(req);
+        return mapper.toDto(created);
+    }
 
-        // gather product ids for this brand
-        var productIds = productRepository.findAllByBrandIdAndDeletedFalse(brandId).stream()
-                .map(p -> p.getId())
-                .collect(Collectors.toSet());
-
-        if (productIds.isEmpty()) {
-            return ResponseEntity.ok(List.of());
-        }
+    /** Newest first; pass the X-Next-Cursor header of one page as {@code cursor} to get the next (absent on the last page). */
+    @GetMapping("/buyer/{buyerId}")
+    public ResponseEntity<List<OrderDto>> byBuyer(@PathVariable UUID buyerId,
+                                                  @RequestParam(required = false) String cursor,
+                                                  @RequestParam(defaultValue = "20") int size) {
+        BuyerOrderHistoryService.Page page = buyerOrderHistory.page(buyerId, cursor, size);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.nextCursor() != null) ok.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        return ok.body(page.orders());
+    }
 
-        // fetch orders that contain any of this brand's products
-        var orders = orderService.listByBrand(brandId);
+    /** NEW: brand-facing orders (items filtered to the brand, totals recomputed), newest first, paginated */
+    @GetMapping("/brand/{brandId}")
+    public ResponseEntity<List<OrderDto>> byBrand(@PathVariable UUID brandId,
+                                                  @RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "20") int size,
+                                                  @AuthenticationPrincipal Jwt jwt) {
+        requireSellerOf(brandId, jwt);
 
-        // map to brand-sliced DTOs
-        var dtos = orders.stream()
-                .map(o -> mapper.toBrandSliceDto(o, productIds))
-                .filter(dto -> dto.getItems() != null && !dto.getItems().isEmpty())
+        // lines carry the brand they were sold under, so no product lookup is needed
+        var dtos = orderService.listByBrand(brandId, page, size).stream()
+                .map(slice -> mapper.toBrandSliceDto(slice.order(), slice.brandItems()))
                 .toList();
 
         return ResponseEntity.ok(dtos);
     }
 
+    /**
+     * All of the brand's order lines as CSV (default) or NDJSON, streamed straight from a database
+     * cursor. 429 when too many exports are already running.
+     */
+    @GetMapping("/brand/{brandId}/export")
+    public WebAsyncTask<Void> exportByBrand(@PathVariable UUID brandId,
+                                            @RequestParam(defaultValue = "csv") String format,
+                                            @AuthenticationPrincipal Jwt jwt,
+                                            HttpServletResponse response) {
+        requireSellerOf(brandId, jwt);
+        OrderExportService.Format fmt = switch (format.toLowerCase(Locale.ROOT)) {
+            case "csv" -> OrderExportService.Format.CSV;
+            case "ndjson" -> OrderExportService.Format.NDJSON;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or ndjson");
+        };
+        String filename = "orders-" + brandId + "." + fmt.name().toLowerCase(Locale.ROOT);
+        WebAsyncTask<Void> task = exportService.schedule(() -> exportService.export(brandId, fmt, response.getOutputStream()));
+        response.setContentType(fmt == OrderExportService.Format.CSV ? "text/csv; charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString());
+        return task;
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderDto> get(@PathVariable UUID id) {
         return orderService.get(id)
@@ -98,6 +167,21 @@ public class OrderController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // authn / authz: must be BRAND_SELLER of this brand
+    private void requireSellerOf(UUID brandId, Jwt jwt) {
+        UUID caller = resolveBuyerId(jwt)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
+        UserSync user = userSyncRepository.findById(caller)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found"));
+
+        if (user.isDeleted() || user.getRole() != Role.BRAND_SELLER) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only brand sellers can view brand orders");
+        }
+        if (user.getBrand() == null || !brandId.equals(user.getBrand().getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Brand mismatch");
+        }
+    }
+
     private Optional<UUID> resolveBuyerId(Jwt jwt) {
         if (jwt == null) return Optional.empty();
 
@@ -1,22 +1,31 @@
 package com.spark.electronics_store.controller;
 
+import com.spark.electronics_store.dto.CreatePhotoUploadRequest;
 import com.spark.electronics_store.dto.CreateProductRequest;
+import com.spark.electronics_store.dto.PhotoUploadStatus;
 import com.spark.electronics_store.dto.ProductPhotoResponse;
 import com.spark.electronics_store.dto.ProductResponse;
 import com.spark.electronics_store.dto.ReorderPhotosRequest;
 import com.spark.electronics_store.dto.UpdateProductRequest;
-import com.spark.electronics_store.model.ProductPhoto;
+import com.spark.electronics_store.repository.projection.ProductPhotoMeta;
 import com.spark.electronics_store.security.BrandAuthorizationService;
+import com.spark.electronics_store.service.PhotoUploadSessionService;
 import com.spark.electronics_store.service.ProductPhotoService;
 import com.spark.electronics_store.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 
@@ -27,8 +36,14 @@ public class ProductController {
 
     private final ProductService productService;
     private final ProductPhotoService photoService;
+    private final PhotoUploadSessionService uploadSessionService;
     private final BrandAuthorizationService authService;
 
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+
+    private static final CacheControl PHOTO_CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
     // -------- products --------
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ProductResponse> create(@PathVariable UUID brandId,
@@ -76,6 +91,62 @@ public class ProductController {
         return ResponseEntity.status(201).body(photo);
     }
 
+    // -------- resumable photo uploads --------
+    @PostMapping("/{productId}/photos/uploads")
+    public ResponseEntity<PhotoUploadStatus> startUpload(@PathVariable UUID brandId,
+                                                         @PathVariable UUID productId,
+                                                         @RequestBody CreatePhotoUploadRequest req,
+                                                         Authentication auth) {
+        authService.requireBrandSellerForBrand(brandId, auth);
+        PhotoUploadStatus status = uploadSessionService.create(brandId, productId, req);
+        return ResponseEntity.created(URI.create(String.format("/brands/%s/products/%s/photos/uploads/%s",
+                        brandId, productId, status.uploadId())))
+                .header(UPLOAD_OFFSET, String.valueOf(status.offset()))
+                .body(status);
+    }
+
+    @GetMapping("/{productId}/photos/uploads/{uploadId}")
+    public ResponseEntity<PhotoUploadStatus> uploadStatus(@PathVariable UUID brandId,
+                                                          @PathVariable UUID productId,
+                                                          @PathVariable UUID uploadId,
+                                                          Authentication auth) {
+        authService.requireBrandSellerForBrand(brandId, auth);
+        PhotoUploadStatus status = uploadSessionService.status(brandId, productId, uploadId);
+        return ResponseEntity.ok().header(UPLOAD_OFFSET, String.valueOf(status.offset())).body(status);
+    }
+
+    // raw chunk body; Upload-Offset must equal the offset the server reports
+    @PutMapping(value = "/{productId}/photos/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<PhotoUploadStatus> uploadChunk(@PathVariable UUID brandId,
+                                                         @PathVariable UUID productId,
+                                                         @PathVariable UUID uploadId,
+                                                         @RequestHeader(UPLOAD_OFFSET) long offset,
+                                                         InputStream body,
+                                                         Authentication auth) {
+        authService.requireBrandSellerForBrand(brandId, auth);
+        PhotoUploadStatus status = uploadSessionService.append(brandId, productId, uploadId, offset, body);
+        return ResponseEntity.ok().header(UPLOAD_OFFSET, String.valueOf(status.offset())).body(status);
+    }
+
+    @PostMapping("/{productId}/photos/uploads/{uploadId}/complete")
+    public ResponseEntity<ProductPhotoResponse> completeUpload(@PathVariable UUID brandId,
+                                                               @PathVariable UUID productId,
+                                                               @PathVariable UUID uploadId,
+                                                               Authentication auth) {
+        authService.requireBrandSellerForBrand(brandId, auth);
+        return ResponseEntity.status(201).body(uploadSessionService.complete(brandId, productId, uploadId));
+    }
+
+    @DeleteMapping("/{productId}/photos/uploads/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable UUID brandId,
+                                            @PathVariable UUID productId,
+                                            @PathVariable UUID uploadId,
+                                            Authentication auth) {
+        authService.requireBrandSellerForBrand(brandId, auth);
+        uploadSessionService.abort(brandId, productId, uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/{productId}/photos")
     public ResponseEntity<List<ProductPhotoResponse>> listPhotos(@PathVariable UUID brandId,
                                                                  @PathVariable UUID productId,
@@ -85,23 +156,34 @@ public class ProductController {
     }
     // Publicly serve photo bytes so frontend <img> can load them directly
     @GetMapping({"/{productId}/photos/{photoId}", "/{productId}/photos/{photoId}/raw"})
-    public ResponseEntity<byte[]> getPhotoBytes(@PathVariable UUID brandId,
-                                                @PathVariable UUID productId,
-                                                @PathVariable UUID photoId) {
+    public ResponseEntity<Resource> getPhotoBytes(@PathVariable UUID brandId,
+                                                  @PathVariable UUID productId,
+                                                  @PathVariable UUID photoId,
+                                                  ServletWebRequest webRequest) {
         // ⚠️ No auth check here – safe read-only
-        ProductPhoto photo = photoService.getEntity(brandId, productId, photoId);
+        ProductPhotoMeta meta = photoService.getMeta(brandId, productId, photoId);
+
+        // photo ids never get new bytes, so the content hash is a stable strong validator;
+        // set Cache-Control up-front so it is also sent on the 304 below
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, PHOTO_CACHE_CONTROL.getHeaderValue());
+        String etag = meta.contentHash() != null ? "\"" + meta.contentHash() + "\"" : null;
+        long lastModified = meta.createdAt() != null ? meta.createdAt().toEpochMilli() : -1;
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null; // 304 written by checkNotModified, bytes never loaded
+        }
 
         // fallback content type if DB has null/invalid
-        String contentType = photo.getContentType();
+        String contentType = meta.contentType();
         if (contentType == null || contentType.isBlank() || contentType.equals("application/octet-stream")) {
             contentType = "image/jpeg"; // default safe fallback
         }
 
+        // Resource body lets Spring answer Range requests with 206 / 416
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "inline; filename=\"" + photo.getFilename() + "\"")
+                        "inline; filename=\"" + meta.filename() + "\"")
                 .contentType(MediaType.parseMediaType(contentType))
-                .body(photo.getData());
+                .body(photoService.getDataResource(brandId, productId, meta));
     }
 
 
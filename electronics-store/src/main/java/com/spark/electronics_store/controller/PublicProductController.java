@@ -22,10 +22,11 @@ public class PublicProductController {
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String minPrice,
             @RequestParam(required = false) String maxPrice,
+            @RequestParam(required = false) String currency,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size
     ) {
-        return productService.search(query, category, minPrice, maxPrice, page, size);
+        return productService.search(query, category, minPrice, maxPrice, currency, page, size);
     }
 
     // Public details by UUID
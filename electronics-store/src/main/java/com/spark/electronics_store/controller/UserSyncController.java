@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -19,6 +20,8 @@ public class UserSyncController {
     // Hardcoded internal secret (must match what user-management sends)
     private static final String SHARED_SECRET = "moldo";
 
+    private static final int MAX_BATCH = 1000;
+
     private boolean authorized(String header) {
         if (header == null) return false;
         String token = header.trim();
@@ -41,6 +44,23 @@ public class UserSyncController {
         return ResponseEntity.ok().build();
     }
 
+    /** Many upserts in one call and one statement; same rules as the single upsert. */
+    @PostMapping("/batch")
+    public ResponseEntity<Void> upsertBatch(
+            @RequestHeader(value = "Authorization", required = false) String auth,
+            @RequestBody List<UserSyncDto> dtos) {
+
+        if (!authorized(auth)) {
+            return ResponseEntity.status(401).build();
+        }
+        if (dtos.size() > MAX_BATCH) {
+            return ResponseEntity.status(413).build();
+        }
+
+        userSyncService.upsertBatch(dtos);
+        return ResponseEntity.ok().build();
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(
             @RequestHeader(value = "Authorization", required = false) String auth,
@@ -0,0 +1,19 @@
+package com.spark.electronics_store.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record BrandAnalyticsResponse(
+        UUID brandId,
+        LocalDate from,
+        LocalDate to, // inclusive, UTC days
+        List<Day> days,
+        List<ProductDay> products
+) {
+    public record Day(LocalDate day, String currency, long orders, long units, BigDecimal revenue) {}
+
+    public record ProductDay(LocalDate day, UUID productId, String productName, String currency,
+                             long orders, long units, BigDecimal revenue) {}
+}
@@ -0,0 +1,18 @@
+package com.spark.electronics_store.dto;
+
+import com.spark.electronics_store.model.Brand;
+
+import java.util.UUID;
+
+/** Immutable brand view; same JSON shape as the Brand entity the brand endpoints used to return. */
+public record BrandResponse(
+        UUID id,
+        String name,
+        String slug,
+        String logoUrl,
+        Long version
+) {
+    public static BrandResponse from(Brand brand) {
+        return new BrandResponse(brand.getId(), brand.getName(), brand.getSlug(), brand.getLogoUrl(), brand.getVersion());
+    }
+}
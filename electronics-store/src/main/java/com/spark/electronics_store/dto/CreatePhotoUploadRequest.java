@@ -0,0 +1,7 @@
+package com.spark.electronics_store.dto;
+
+public record CreatePhotoUploadRequest(
+        String filename,
+        String contentType,
+        long size // total bytes the client will send
+) {}
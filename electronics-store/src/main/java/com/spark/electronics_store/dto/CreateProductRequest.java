@@ -8,5 +8,6 @@ public record CreateProductRequest(
         String description,
         String price,     // string to avoid float surprises, parsed to BigDecimal
         String currency,
-        ProductCategory category
+        ProductCategory category,
+        Integer stock     // optional; omitted = stock not tracked
 ) {}
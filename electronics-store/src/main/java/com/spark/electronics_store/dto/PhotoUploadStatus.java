@@ -0,0 +1,9 @@
+package com.spark.electronics_store.dto;
+
+import java.util.UUID;
+
+public record PhotoUploadStatus(
+        UUID uploadId,
+        long offset, // bytes received so far; the next chunk must start here
+        long size
+) {}
@@ -8,5 +8,9 @@ public record ProductPhotoResponse(
         String contentType,
         int position,
         boolean primary,
-        String url // served by /brands/{brandId}/products/{productId}/photos/{photoId}
+        String url, // served by /brands/{brandId}/products/{productId}/photos/{photoId}
+        Integer width,
+        Integer height,
+        String dominantColor,
+        String blurHash
 ) {}
@@ -16,5 +16,6 @@ public record ProductResponse(
         String currency,
         ProductCategory category,
         ProductStatus status,
+        Integer stock,
         List<ProductPhotoResponse> photos
 ) {}
@@ -14,6 +14,7 @@ public record UpdateProductRequest(
         String currency,
         ProductStatus status,
         ProductCategory category,
+        Integer stock,
 
         // photo ops (all optional)
         List<UUID> deletePhotoIds,
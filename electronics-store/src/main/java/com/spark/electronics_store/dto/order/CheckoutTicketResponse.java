@@ -0,0 +1,11 @@
+package com.spark.electronics_store.dto.order;
+
+import java.util.UUID;
+
+/** Place in the checkout waiting room; resubmit the order with the ticket once status is READY. */
+public record CheckoutTicketResponse(
+        UUID ticketId,
+        String status,
+        long position,
+        int retryAfterSeconds
+) {}
@@ -4,28 +4,33 @@ import com.spark.electronics_store.dto.order.OrderDto;
 import com.spark.electronics_store.dto.order.OrderItemDto;
 import com.spark.electronics_store.model.Order;
 import com.spark.electronics_store.model.OrderItem;
+import com.spark.electronics_store.util.Money;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.UUID;
 
 @Component
 public class OrderDtoMapper {
 
     public OrderDto toDto(Order o) {
         if (o == null) return null;
+        return toDto(o, o.getItems());
+    }
+
+    /** Same as {@link #toDto(Order)} with the lines supplied (e.g. batch-loaded), so {@code o.getItems()} is never touched. */
+    public OrderDto toDto(Order o, List<OrderItem> lines) {
+        if (o == null) return null;
 
-        List<OrderItem> srcItems = (o.getItems() == null) ? List.of() : o.getItems();
+        List<OrderItem> srcItems = (lines == null) ? List.of() : lines;
         List<OrderItemDto> items = srcItems.stream().map(this::toDto).toList();
 
         return OrderDto.builder()
                 .id(o.getId())
-                .subtotal(o.getSubtotal())
-                .shipping(o.getShipping())
-                .tax(o.getTax())
-                .total(o.getTotal())
+                .subtotal(Money.toDecimal(o.getSubtotalMinor(), o.getCurrency()))
+                .shipping(Money.toDecimal(o.getShippingMinor(), o.getCurrency()))
+                .tax(Money.toDecimal(o.getTaxMinor(), o.getCurrency()))
+                .total(Money.toDecimal(o.getTotalMinor(), o.getCurrency()))
                 .currency(o.getCurrency())
                 .status(o.getStatus())
                 .createdAt(o.getCreatedAt() != null ? o.getCreatedAt().toString() : null)
@@ -46,51 +51,39 @@ public class OrderDtoMapper {
                 .id(it.getId())
                 .productId(it.getProductId())
                 .productName(it.getProductName())
-                .unitPrice(it.getUnitPrice())
+                .unitPrice(Money.toDecimal(it.getUnitPriceMinor(), it.getCurrency()))
                 .qty(it.getQty())
                 .currency(it.getCurrency())
                 .createdAt(it.getCreatedAt() != null ? it.getCreatedAt().toString() : null)
                 .build();
     }
 
-    /** Brand slice: keep only items with productId ∈ allowedProductIds and recompute totals. */
-    public OrderDto toBrandSliceDto(Order o, Set<UUID> allowedProductIds) {
+    /** Brand slice: only the brand's own lines (already filtered by the query), totals recomputed. */
+    public OrderDto toBrandSliceDto(Order o, List<OrderItem> brandItems) {
         if (o == null) return null;
 
-        List<OrderItem> allItems = (o.getItems() == null) ? List.of() : o.getItems();
-        List<OrderItem> filtered = allItems.stream()
-                .filter(it -> it.getProductId() != null && allowedProductIds.contains(it.getProductId()))
-                .toList();
+        List<OrderItem> filtered = (brandItems == null) ? List.of() : brandItems;
 
-        List<OrderItemDto> itemDtos = filtered.stream()
-                .map(it -> OrderItemDto.builder()
-                        .id(it.getId())
-                        .productId(it.getProductId())
-                        .productName(it.getProductName())
-                        .unitPrice(it.getUnitPrice())
-                        .qty(it.getQty())
-                        .currency(it.getCurrency())
-                        .createdAt(it.getCreatedAt() != null ? it.getCreatedAt().toString() : null)
-                        .build())
-                .toList();
-
-        BigDecimal subtotal = filtered.stream()
-                .map(it -> (it.getUnitPrice() == null ? BigDecimal.ZERO : it.getUnitPrice())
-                        .multiply(BigDecimal.valueOf(it.getQty() == null ? 1 : it.getQty())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<OrderItemDto> itemDtos = new ArrayList<>(filtered.size());
+        long subtotal = 0; // minor units
+        for (OrderItem it : filtered) {
+            itemDtos.add(toDto(it));
+            subtotal = Math.addExact(subtotal, Math.multiplyExact(it.getUnitPriceMinor(), it.getQty() == null ? 1 : it.getQty()));
+        }
 
         // Brand slice: simplest is zero for shipping/tax; adjust if you later pro-rate.
-        BigDecimal shipping = BigDecimal.ZERO;
-        BigDecimal tax = BigDecimal.ZERO;
-        BigDecimal total = subtotal.add(shipping).add(tax);
+        long shipping = 0;
+        long tax = 0;
+        long total = subtotal + shipping + tax;
 
+        String currency = o.getCurrency();
         return OrderDto.builder()
                 .id(o.getId())
-                .currency(o.getCurrency())
-                .subtotal(subtotal)
-                .shipping(shipping)
-                .tax(tax)
-                .total(total)
+                .currency(currency)
+                .subtotal(Money.toDecimal(subtotal, currency))
+                .shipping(Money.toDecimal(shipping, currency))
+                .tax(Money.toDecimal(tax, currency))
+                .total(Money.toDecimal(total, currency))
                 .status(o.getStatus())
                 .fullName(o.getFullName())
                 .email(o.getEmail())
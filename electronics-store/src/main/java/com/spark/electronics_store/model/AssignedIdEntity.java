@@ -0,0 +1,35 @@
+package com.spark.electronics_store.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * Base for entities whose UUID is assigned in code before {@code save()}. Spring Data decides
+ * between persist and merge by looking at the id; a pre-set id looks "existing", so every insert
+ * used to go through merge() and cost a SELECT first. Instances start out new and flip once
+ * persisted or loaded, so save() persists directly and Hibernate can batch the inserts.
+ */
+@MappedSuperclass
+public abstract class AssignedIdEntity implements Persistable<UUID> {
+
+    @Transient
+    private boolean isNew = true;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostPersist
+    @PostLoad
+    void markNotNew() {
+        this.isNew = false;
+    }
+}
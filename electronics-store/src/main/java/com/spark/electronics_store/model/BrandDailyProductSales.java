@@ -0,0 +1,48 @@
+package com.spark.electronics_store.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Pre-aggregated sales of one product on one (UTC) day, per currency; the brand × day × product
+ * breakdown of {@link BrandDailySales}.
+ */
+@Entity
+@Table(name = "brand_daily_product_sales")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+public class BrandDailyProductSales {
+
+    @EmbeddedId
+    private Key id;
+
+    private String productName; // name at the latest sale
+
+    private long orders;
+    private long units;
+
+    @Column(name = "revenue_minor", nullable = false)
+    private long revenueMinor; // minor units of the row's currency
+
+    @Embeddable
+    @Getter @Setter
+    @NoArgsConstructor @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        @Column(name = "brand_id", nullable = false, columnDefinition = "uuid")
+        private UUID brandId;
+
+        @Column(name = "sales_day", nullable = false)
+        private LocalDate day;
+
+        @Column(name = "product_id", nullable = false, columnDefinition = "uuid")
+        private UUID productId;
+
+        @Column(nullable = false, length = 8)
+        private String currency;
+    }
+}
@@ -0,0 +1,43 @@
+package com.spark.electronics_store.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Pre-aggregated sales of one brand on one (UTC) day, per currency. Maintained incrementally by
+ * {@link com.spark.electronics_store.service.SalesRollupService} when orders are placed.
+ */
+@Entity
+@Table(name = "brand_daily_sales")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+public class BrandDailySales {
+
+    @EmbeddedId
+    private Key id;
+
+    private long orders;   // orders with at least one line of the brand
+    private long units;
+
+    @Column(name = "revenue_minor", nullable = false)
+    private long revenueMinor; // minor units of the row's currency
+
+    @Embeddable
+    @Getter @Setter
+    @NoArgsConstructor @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        @Column(name = "brand_id", nullable = false, columnDefinition = "uuid")
+        private UUID brandId;
+
+        @Column(name = "sales_day", nullable = false)
+        private LocalDate day;
+
+        @Column(nullable = false, length = 8)
+        private String currency;
+    }
+}
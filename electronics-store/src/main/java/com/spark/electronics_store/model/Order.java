@@ -6,17 +6,19 @@ import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // buyer order history: keyset pagination on (created_at, id)
+        @Index(name = "idx_orders_buyer_created", columnList = "buyer_id, created_at, id")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor @Builder
-public class Order {
+public class Order extends AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -26,17 +28,18 @@ public class Order {
     @JoinColumn(name = "buyer_id", nullable = false)
     private UserSync buyer;
 
-    @Column(precision = 18, scale = 2)
-    private BigDecimal subtotal;
+    // amounts in minor units of currency (see Money)
+    @Column(name = "subtotal_minor", nullable = false)
+    private long subtotalMinor;
 
-    @Column(precision = 18, scale = 2)
-    private BigDecimal shipping; // keep 0 for now
+    @Column(name = "shipping_minor", nullable = false)
+    private long shippingMinor; // keep 0 for now
 
-    @Column(precision = 18, scale = 2)
-    private BigDecimal tax; // keep 0 / included
+    @Column(name = "tax_minor", nullable = false)
+    private long taxMinor; // keep 0 / included
 
-    @Column(precision = 18, scale = 2)
-    private BigDecimal total;
+    @Column(name = "total_minor", nullable = false)
+    private long totalMinor;
 
     private String currency; // e.g., "RON"
 
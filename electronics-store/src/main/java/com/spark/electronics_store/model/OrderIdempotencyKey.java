@@ -0,0 +1,39 @@
+package com.spark.electronics_store.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** Remembers which order an Idempotency-Key produced, so retried POST /orders replay it. */
+@Entity
+@Table(name = "order_idempotency_keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_order_idempotency_buyer_key", columnNames = {"buyer_id", "idempotency_key"}),
+        indexes = @Index(name = "idx_order_idempotency_created", columnList = "created_at"))
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class OrderIdempotencyKey extends AssignedIdEntity {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    private UUID id;
+
+    @Column(name = "buyer_id", nullable = false, columnDefinition = "uuid")
+    private UUID buyerId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String key;
+
+    // SHA-256 of the request body; a reused key with a different body is rejected
+    @Column(nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "order_id", nullable = false, columnDefinition = "uuid")
+    private UUID orderId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
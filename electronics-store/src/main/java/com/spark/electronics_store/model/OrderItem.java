@@ -6,15 +6,17 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        // brand order listing: one index range per brand, newest first
+        @Index(name = "idx_order_items_brand_created", columnList = "brand_id, created_at")
+})
 @Getter @Setter
 @NoArgsConstructor @AllArgsConstructor @Builder
-public class OrderItem {
+public class OrderItem extends AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -31,8 +33,12 @@ public class OrderItem {
 
     private String productName;
 
-    @Column(precision = 18, scale = 2)
-    private BigDecimal unitPrice;
+    // brand of the product at order time, so brand listings survive product deletes/transfers
+    @Column(name = "brand_id", nullable = false, columnDefinition = "uuid")
+    private UUID brandId;
+
+    @Column(name = "unit_price_minor", nullable = false)
+    private long unitPriceMinor; // minor units of currency (see Money)
 
     private Integer qty;
 
@@ -0,0 +1,55 @@
+package com.spark.electronics_store.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A notification for another service, written in the same transaction as the change it
+ * describes and delivered afterwards by {@link com.spark.electronics_store.service.OutboxRelay}.
+ * The id is a sequence so events of one aggregate keep their commit order.
+ */
+@Entity
+@Table(name = "outbox_events",
+        indexes = {
+                @Index(name = "idx_outbox_available", columnList = "available_at, id"),
+                @Index(name = "idx_outbox_aggregate", columnList = "destination, aggregate_id, id")
+        })
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor @Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // name of the OutboxDestination bean that delivers it
+    @Column(nullable = false, length = 64)
+    private String destination;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String eventType;
+
+    @Column(name = "aggregate_id", nullable = false, columnDefinition = "uuid")
+    private UUID aggregateId;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // not picked up before this instant: retry backoff, or the lease of the relay delivering it
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
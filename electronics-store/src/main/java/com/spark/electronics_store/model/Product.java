@@ -5,7 +5,6 @@ import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,7 +17,7 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Product {
+public class Product extends AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -37,10 +36,15 @@ public class Product {
     @Column(columnDefinition = "text")
     private String description;
 
-    private BigDecimal price;
+    // minor units of currency (see Money); null = no price set
+    @Column(name = "price_minor")
+    private Long priceMinor;
 
     private String currency;
 
+    // units on hand; null = not tracked (never sells out). Decremented only by conditional UPDATE at checkout
+    private Integer stock;
+
     @Enumerated(EnumType.STRING)
     private ProductCategory category;
 
@@ -6,6 +6,8 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.spark.electronics_store.util.ContentHash;
+
 import java.sql.Types;
 import java.time.Instant;
 import java.util.UUID;
@@ -17,7 +19,7 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class ProductPhoto {
+public class ProductPhoto extends AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -38,6 +40,25 @@ public class ProductPhoto {
     @Column(columnDefinition = "bytea", nullable = false)
     private byte[] data;
 
+    // SHA-256 of data, hex encoded; used as the strong ETag when serving bytes
+    @Column(length = 64)
+    private String contentHash;
+
+    private Long sizeBytes;
+
+    // placeholder data so clients can paint before the bytes arrive (filled at upload or by backfill)
+    private Integer width;
+    private Integer height;
+
+    @Column(length = 7)
+    private String dominantColor; // "#rrggbb"
+
+    @Column(length = 64)
+    private String blurHash;
+
+    // set when the bytes could not be decoded, so the backfill stops retrying the photo
+    private Instant placeholderFailedAt;
+
     @Column(nullable = false)
     private Integer position;
 
@@ -51,4 +72,12 @@ public class ProductPhoto {
     @UpdateTimestamp
     @Column(nullable = false)
     private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (data != null) {
+            if (contentHash == null) contentHash = ContentHash.sha256Hex(data);
+            if (sizeBytes == null) sizeBytes = (long) data.length;
+        }
+    }
 }
@@ -13,7 +13,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class UserSync {
+public class UserSync extends AssignedIdEntity {
 
     @Id
     @Column(columnDefinition = "uuid")
@@ -33,6 +33,9 @@ public class UserSync {
     @JoinColumn(name = "brand_id")
     private Brand brand;
 
+    // outbox id of the last user event applied; 0 until one arrives (HTTP sync writes carry none)
+    @Column(name = "source_seq", nullable = false)
+    private long sourceSeq;
 
     private LocalDateTime updatedAt;
 
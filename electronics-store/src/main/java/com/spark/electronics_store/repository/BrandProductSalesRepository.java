@@ -0,0 +1,13 @@
+package com.spark.electronics_store.repository;
+
+import com.spark.electronics_store.model.BrandDailyProductSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface BrandProductSalesRepository extends JpaRepository<BrandDailyProductSales, BrandDailyProductSales.Key> {
+
+    List<BrandDailyProductSales> findByIdBrandIdAndIdDayBetweenOrderByIdDayAscIdProductIdAsc(UUID brandId, LocalDate from, LocalDate to);
+}
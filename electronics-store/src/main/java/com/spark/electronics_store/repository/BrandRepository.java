@@ -2,15 +2,28 @@ package com.spark.electronics_store.repository;
 
 import com.spark.electronics_store.model.Brand;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface BrandRepository extends JpaRepository<Brand, UUID> {
     Optional<Brand> findBySlug(String slug);
+    List<Brand> findBySlugIn(Collection<String> slugs);
     List<Brand> findByNameContainingIgnoreCaseOrSlugContainingIgnoreCase(String name, String slug);
 
     boolean existsBySlugIgnoreCase(String slug);
     boolean existsByNameIgnoreCase(String name);
+
+    /**
+     * Changes whenever a brand is added, removed or updated (every update bumps its version).
+     * Count and max(version) alone would miss an update to a brand below the highest version.
+     */
+    @Query(value = """
+        select md5(coalesce(string_agg(b.id::text || ':' || coalesce(b.version, 0), ',' order by b.id), ''))
+        from brand b
+    """, nativeQuery = true)
+    String fingerprint();
 }
\ No newline at end of file
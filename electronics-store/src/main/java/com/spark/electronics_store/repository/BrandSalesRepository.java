@@ -0,0 +1,13 @@
+package com.spark.electronics_store.repository;
+
+import com.spark.electronics_store.model.BrandDailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface BrandSalesRepository extends JpaRepository<BrandDailySales, BrandDailySales.Key> {
+
+    List<BrandDailySales> findByIdBrandIdAndIdDayBetweenOrderByIdDayAscIdCurrencyAsc(UUID brandId, LocalDate from, LocalDate to);
+}
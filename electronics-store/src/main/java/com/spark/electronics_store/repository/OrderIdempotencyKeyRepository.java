@@ -0,0 +1,22 @@
+package com.spark.electronics_store.repository;
+
+import com.spark.electronics_store.model.OrderIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OrderIdempotencyKeyRepository extends JpaRepository<OrderIdempotencyKey, UUID> {
+
+    Optional<OrderIdempotencyKey> findByBuyerIdAndKey(UUID buyerId, String key);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OrderIdempotencyKey k where k.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
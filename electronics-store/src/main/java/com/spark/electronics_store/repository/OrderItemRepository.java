@@ -0,0 +1,34 @@
+package com.spark.electronics_store.repository;
+
+import com.spark.electronics_store.model.OrderItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public interface OrderItemRepository extends JpaRepository<OrderItem, UUID> {
+
+    List<OrderItem> findByBrandIdAndOrder_IdInOrderByCreatedAtAsc(UUID brandId, Collection<UUID> orderIds);
+
+    List<OrderItem> findByOrder_IdInOrderByCreatedAtAsc(Collection<UUID> orderIds);
+
+    // forward-only cursor for exports: rows arrive in fetch-size chunks; caller must be in a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        select i
+        from OrderItem i join fetch i.order o
+        where i.brandId = :brandId
+        order by i.createdAt asc, i.id asc
+    """)
+    Stream<OrderItem> streamByBrand(@Param("brandId") UUID brandId);
+}
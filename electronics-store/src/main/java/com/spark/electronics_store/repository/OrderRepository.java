@@ -1,25 +1,47 @@
 package com.spark.electronics_store.repository;
 
 import com.spark.electronics_store.model.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.util.Collection;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 public interface OrderRepository extends JpaRepository<Order, UUID> {
-    List<Order> findByBuyer_IdOrderByCreatedAtDesc(UUID buyerId);
 
+    // keyset pages over idx_orders_buyer_created: newest first, id breaks created_at ties
     @Query("""
-        select distinct o
+        select o
         from Order o
-        join o.items i
-        where i.productId in :productIds
-        order by o.createdAt desc, o.id
+        where o.buyer.id = :buyerId
+        order by o.createdAt desc, o.id desc
     """)
-    List<Order> findDistinctByItemsProductIds(
-            @Param("productIds") Collection<UUID> productIds
-    );
+    List<Order> findFirstPageByBuyer(@Param("buyerId") UUID buyerId, Pageable limit);
+
+    @Query("""
+        select o
+        from Order o
+        where o.buyer.id = :buyerId
+          and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id))
+        order by o.createdAt desc, o.id desc
+    """)
+    List<Order> findPageByBuyerAfter(@Param("buyerId") UUID buyerId,
+                                     @Param("createdAt") Instant createdAt,
+                                     @Param("id") UUID id,
+                                     Pageable limit);
+
+    // idx_order_items_brand_created finds the brand's order ids, but every one of those orders is
+    // then sorted before the offset is applied: cost grows with the brand's order count and the
+    // page depth. No product lookup, so lines of deleted products still count.
+    @Query("""
+        select o
+        from Order o
+        where o.id in (select i.order.id from OrderItem i where i.brandId = :brandId)
+        order by o.createdAt desc, o.id desc
+    """)
+    Slice<Order> findPageByBrand(@Param("brandId") UUID brandId, Pageable pageable);
 }
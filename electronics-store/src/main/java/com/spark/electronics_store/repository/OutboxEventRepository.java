@@ -0,0 +1,57 @@
+package com.spark.electronics_store.repository;
+
+import com.spark.electronics_store.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Oldest due event of each aggregate, locked; rows another relay holds are skipped rather
+     * than waited for. Later events of an aggregate wait until its head is delivered, so one
+     * aggregate's events are never delivered out of order or by two relays at once.
+     */
+    @Query(value = """
+            select e.id from outbox_events e
+            where e.available_at <= :now
+              and not exists (select 1 from outbox_events o
+                              where o.destination = e.destination
+                                and o.aggregate_id = e.aggregate_id
+                                and o.id < e.id)
+            order by e.id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<Long> lockDueHeads(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.availableAt = :until where e.id in :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+    /** Newest event of each given aggregate: only the latest state needs to reach the peer. */
+    @Query("""
+            select e from OutboxEvent e
+            where e.destination = :destination and e.aggregateId in :aggregateIds
+              and e.id = (select max(o.id) from OutboxEvent o
+                          where o.destination = e.destination and o.aggregateId = e.aggregateId)
+            """)
+    List<OutboxEvent> findLatest(@Param("destination") String destination,
+                                 @Param("aggregateIds") Collection<UUID> aggregateIds);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.destination = :destination and e.aggregateId = :aggregateId and e.id <= :upToId")
+    int deleteDelivered(@Param("destination") String destination,
+                        @Param("aggregateId") UUID aggregateId,
+                        @Param("upToId") long upToId);
+
+    @Modifying
+    @Query("update OutboxEvent e set e.attempts = e.attempts + 1, e.availableAt = :retryAt, e.lastError = :error where e.id = :id")
+    int scheduleRetry(@Param("id") long id, @Param("retryAt") Instant retryAt, @Param("error") String error);
+}
@@ -1,14 +1,164 @@
 package com.spark.electronics_store.repository;
 
 import com.spark.electronics_store.model.ProductPhoto;
+import com.spark.electronics_store.repository.projection.PhotoBackfillTarget;
+import com.spark.electronics_store.repository.projection.ProductPhotoMeta;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ProductPhotoRepository extends JpaRepository<ProductPhoto, UUID> {
 
-    int countByProduct_Id(UUID productId);
+    @Query("select coalesce(max(p.position) + 1, 0) from ProductPhoto p where p.product.id = :productId")
+    int nextPosition(@Param("productId") UUID productId);
 
     List<ProductPhoto> findByProduct_IdOrderByPositionAsc(UUID productId);
+
+    // brand/product ownership is checked in the same query; no bytes are selected
+    @Query("""
+        select new com.spark.electronics_store.repository.projection.ProductPhotoMeta(
+            p.id, p.filename, p.contentType, p.contentHash, p.sizeBytes, p.createdAt)
+        from ProductPhoto p
+        where p.id = :photoId
+          and p.product.id = :productId
+          and p.product.brand.id = :brandId
+    """)
+    Optional<ProductPhotoMeta> findMeta(@Param("brandId") UUID brandId,
+                                        @Param("productId") UUID productId,
+                                        @Param("photoId") UUID photoId);
+
+    @Query("select p.data from ProductPhoto p where p.id = :photoId")
+    Optional<byte[]> findDataById(@Param("photoId") UUID photoId);
+
+    /**
+     * One slice of the photo bytes ({@code offset} is 0-based), only for the brand's product. With
+     * out-of-line storage Postgres only reads the TOAST chunks covering the slice; empty/null once
+     * the photo is gone.
+     */
+    @Query(value = """
+        select substring(ph.data from :offset + 1 for :length) from product_photos ph
+        where ph.id = :photoId
+          and ph.product_id = :productId
+          and exists (select 1 from product p where p.id = :productId and p.brand_id = :brandId)
+    """, nativeQuery = true)
+    byte[] readChunk(@Param("brandId") UUID brandId,
+                     @Param("productId") UUID productId,
+                     @Param("photoId") UUID photoId,
+                     @Param("offset") long offset,
+                     @Param("length") int length);
+
+    // keyset scan for the backfill; photos that could not be decoded are marked and not retried
+    @Query("""
+        select new com.spark.electronics_store.repository.projection.PhotoBackfillTarget(
+            p.id,
+            case when p.blurHash is null and p.placeholderFailedAt is null then true else false end,
+            case when p.contentHash is null then true else false end)
+        from ProductPhoto p
+        where ((p.blurHash is null and p.placeholderFailedAt is null) or p.contentHash is null)
+          and p.id > :after
+        order by p.id
+    """)
+    List<PhotoBackfillTarget> findBackfillTargets(@Param("after") UUID after, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        update ProductPhoto p
+        set p.width = :width, p.height = :height, p.dominantColor = :dominantColor, p.blurHash = :blurHash
+        where p.id = :photoId
+    """)
+    int updatePlaceholder(@Param("photoId") UUID photoId,
+                          @Param("width") int width,
+                          @Param("height") int height,
+                          @Param("dominantColor") String dominantColor,
+                          @Param("blurHash") String blurHash);
+
+    @Transactional
+    @Modifying
+    @Query("update ProductPhoto p set p.placeholderFailedAt = :at where p.id = :photoId")
+    int markPlaceholderFailed(@Param("photoId") UUID photoId, @Param("at") Instant at);
+
+    @Transactional
+    @Modifying
+    @Query("""
+        update ProductPhoto p
+        set p.contentHash = :contentHash, p.sizeBytes = coalesce(p.sizeBytes, :sizeBytes)
+        where p.id = :photoId and p.contentHash is null
+    """)
+    int fillContentHash(@Param("photoId") UUID photoId,
+                        @Param("contentHash") String contentHash,
+                        @Param("sizeBytes") long sizeBytes);
+
+    // ---- set-based mutations; each statement also checks brand/product ownership ----
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        delete from product_photos ph
+        using product p
+        where ph.id = :photoId
+          and ph.product_id = :productId
+          and p.id = ph.product_id
+          and p.brand_id = :brandId
+    """, nativeQuery = true)
+    int deleteOwned(@Param("brandId") UUID brandId,
+                    @Param("productId") UUID productId,
+                    @Param("photoId") UUID photoId);
+
+    // re-packs positions to 0..n-1 and promotes the first photo if no primary is left
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        update product_photos ph
+        set position   = r.new_position,
+            is_primary = case when r.has_primary then ph.is_primary else r.new_position = 0 end,
+            updated_at = now()
+        from (select id,
+                     row_number() over (order by position, id) - 1 as new_position,
+                     bool_or(is_primary) over ()                  as has_primary
+              from product_photos
+              where product_id = :productId) r
+        where ph.id = r.id
+          and (ph.position <> r.new_position or (not r.has_primary and r.new_position = 0))
+    """, nativeQuery = true)
+    int compactPositions(@Param("productId") UUID productId);
+
+    // 0 rows when the photo is not part of this brand's product
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        update product_photos ph
+        set is_primary = case when ph.id = :photoId then true else false end,
+            updated_at = now()
+        from product p
+        where ph.product_id = :productId
+          and p.id = ph.product_id
+          and p.brand_id = :brandId
+          and exists (select 1 from product_photos t where t.id = :photoId and t.product_id = :productId)
+    """, nativeQuery = true)
+    int setPrimaryOwned(@Param("brandId") UUID brandId,
+                        @Param("productId") UUID productId,
+                        @Param("photoId") UUID photoId);
+
+    // updates ids.size() rows only if ids is exactly the product's photo set; otherwise fewer (or none)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        update product_photos ph
+        set position   = o.ord - 1,
+            updated_at = now()
+        from unnest(array[:ids]) with ordinality as o(photo_id, ord)
+        where ph.id = o.photo_id
+          and ph.product_id = :productId
+          and exists (select 1 from product p where p.id = :productId and p.brand_id = :brandId)
+          and (select count(*) from product_photos c where c.product_id = :productId) = :expected
+    """, nativeQuery = true)
+    int reorderOwned(@Param("brandId") UUID brandId,
+                     @Param("productId") UUID productId,
+                     @Param("ids") List<UUID> ids,
+                     @Param("expected") long expected);
 }
@@ -3,6 +3,7 @@ package com.spark.electronics_store.repository;
 import com.spark.electronics_store.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,5 +14,8 @@ public interface ProductRepository extends JpaRepository<Product, UUID> , JpaSpe
     Optional<Product> findBySlug(String slug);
     Optional<Product> findBySlugIgnoreCase(String slug);
 
+    /** Currencies in the catalog (null included), so price filters can compare each at its own scale. */
+    @Query("select distinct p.currency from Product p where p.deleted = false")
+    List<String> findDistinctCurrencies();
 
 }
@@ -0,0 +1,10 @@
+package com.spark.electronics_store.repository.projection;
+
+import java.util.UUID;
+
+/** A photo row the backfill still has work on, and which parts are missing. */
+public record PhotoBackfillTarget(
+        UUID id,
+        boolean missingPlaceholder,
+        boolean missingContentHash
+) {}
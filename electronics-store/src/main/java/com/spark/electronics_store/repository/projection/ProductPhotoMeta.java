@@ -0,0 +1,17 @@
+package com.spark.electronics_store.repository.projection;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Photo row without the bytea column, so conditional GETs can be answered
+ * without pulling image bytes off the database.
+ */
+public record ProductPhotoMeta(
+        UUID id,
+        String filename,
+        String contentType,
+        String contentHash,
+        Long sizeBytes,
+        Instant createdAt
+) {}
@@ -4,9 +4,18 @@ package com.spark.electronics_store.repository.spec;
 import com.spark.electronics_store.model.Product;
 import com.spark.electronics_store.model.ProductCategory;
 import com.spark.electronics_store.model.ProductStatus;
+import com.spark.electronics_store.util.Money;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 
 public final class ProductSpecifications {
 
@@ -55,14 +64,47 @@ public final class ProductSpecifications {
         return (root, q, cb) -> cb.equal(root.get("category"), category);
     }
 
-    public static Specification<Product> priceGte(BigDecimal minPrice) {
-        if (minPrice == null) return null;
-        return (root, q, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    public static Specification<Product> currencyEq(String currency) {
+        if (currency == null) return null;
+        return (root, q, cb) -> cb.equal(cb.upper(root.get("currency")), currency);
+    }
+
+    /**
+     * Price bounds as decimals in each product's own currency. price_minor has a different scale
+     * per currency (see Money), so the bounds are converted once per scale among
+     * {@code currencies} and each group of currencies is compared against its own minor units.
+     */
+    public static Specification<Product> priceBetween(BigDecimal min, BigDecimal max, Collection<String> currencies) {
+        if (min == null && max == null) return null;
+        Map<Integer, List<String>> byScale = new LinkedHashMap<>();
+        for (String c : currencies) byScale.computeIfAbsent(Money.scale(c), s -> new ArrayList<>()).add(c);
+
+        return (root, q, cb) -> {
+            var priceMinor = root.<Long>get("priceMinor");
+            var currency = root.<String>get("currency");
+            List<Predicate> groups = new ArrayList<>();
+            for (List<String> codes : byScale.values()) {
+                String sample = codes.get(0);
+                List<String> named = codes.stream().filter(c -> c != null).toList();
+                Predicate inGroup = named.isEmpty() ? cb.disjunction() : currency.in(named);
+                if (named.size() < codes.size()) inGroup = cb.or(inGroup, cb.isNull(currency));
+
+                Predicate p = inGroup;
+                if (min != null) p = cb.and(p, cb.greaterThanOrEqualTo(priceMinor, boundMinor(min, sample, RoundingMode.CEILING)));
+                if (max != null) p = cb.and(p, cb.lessThanOrEqualTo(priceMinor, boundMinor(max, sample, RoundingMode.FLOOR)));
+                groups.add(p);
+            }
+            return groups.isEmpty() ? cb.disjunction() : cb.or(groups.toArray(Predicate[]::new));
+        };
     }
 
-    // Dacă vrei și preț maxim, ai asta pregătită:
-    public static Specification<Product> priceLte(BigDecimal maxPrice) {
-        if (maxPrice == null) return null;
-        return (root, q, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    // rounded inward (see Money.toMinor); a bound beyond the bigint range matches like an open end
+    // instead of failing the search
+    private static long boundMinor(BigDecimal amount, String currency, RoundingMode rounding) {
+        try {
+            return Money.toMinor(amount, currency, rounding);
+        } catch (ArithmeticException overflow) {
+            return amount.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
     }
 }
@@ -0,0 +1,234 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.BrandResponse;
+import com.spark.electronics_store.model.Brand;
+import com.spark.electronics_store.repository.BrandRepository;
+import com.spark.electronics_store.util.ContentHash;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable in-memory copy of all brands, sorted by name, answering the brand list, search and
+ * slug lookups without touching the database. Search is case-insensitive substring matching on
+ * name or slug (the old {@code %q%} query). It runs on a suffix array over the case-folded keys,
+ * so a query costs a binary search plus the matches.
+ *
+ * Any brand insert/update/delete in this instance (via {@link ChangeListener}) invalidates the
+ * snapshot once the transaction commits; the next read rebuilds it. Changes made by other nodes
+ * are caught by a probe: at most every {@code brand.directory.probe-interval-ms}, a read fetches
+ * a fingerprint of all (id, version) pairs and invalidates the snapshot when it moved. Other
+ * nodes' changes therefore show up within that interval.
+ */
+@Component
+@Slf4j
+public class BrandDirectory {
+
+    private final BrandRepository brandRepository;
+    private final long probeIntervalNanos;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong nextProbeAt = new AtomicLong(System.nanoTime());
+    private volatile String fingerprint;
+
+    public BrandDirectory(BrandRepository brandRepository,
+                          @Value("${brand.directory.probe-interval-ms:5000}") long probeIntervalMs) {
+        this.brandRepository = brandRepository;
+        this.probeIntervalNanos = TimeUnit.MILLISECONDS.toNanos(probeIntervalMs);
+    }
+
+    public Snapshot snapshot() {
+        probeIfDue();
+        Snapshot s = snapshot;
+        if (s != null && s.generation == generation.get()) return s;
+        synchronized (this) {
+            s = snapshot;
+            long gen = generation.get();
+            if (s != null && s.generation == gen) return s;
+            // a change committed while building bumps the generation, so this snapshot is rebuilt on next read
+            s = new Snapshot(brandRepository.findAll(), gen);
+            snapshot = s;
+            log.debug("Brand directory rebuilt: {} brands", s.brands.size());
+            return s;
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    /** One reader per interval runs the probe; the others keep using the current snapshot meanwhile. */
+    private void probeIfDue() {
+        if (probeIntervalNanos <= 0) return;
+        long now = System.nanoTime();
+        long due = nextProbeAt.get();
+        if (now - due < 0 || !nextProbeAt.compareAndSet(due, now + probeIntervalNanos)) return;
+        try {
+            String current = brandRepository.fingerprint();
+            // taken before any rebuild it triggers, so a change racing the rebuild is seen next time
+            if (!Objects.equals(current, fingerprint)) {
+                fingerprint = current;
+                invalidate();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Brand directory probe failed, serving the current snapshot: {}", e.toString());
+        }
+    }
+
+    private void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * JPA entity listener on {@link Brand}, registered in META-INF/orm.xml so the model does not
+     * import the service layer; catches every write path (services, sync, seeding).
+     */
+    @Component
+    @RequiredArgsConstructor
+    public static class ChangeListener {
+        private final BrandDirectory directory;
+
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        void onChange(Brand brand) {
+            directory.invalidateAfterCommit();
+        }
+    }
+
+    public static final class Snapshot {
+        private final long generation;
+        private final List<BrandResponse> brands;
+        private final Map<String, BrandResponse> bySlug;
+        private final String etag;
+
+        // suffix array: each long packs (key index << 32 | offset) into keys, sorted by suffix text
+        private final String[] keys;
+        private final int[] keyBrand;
+        private final long[] suffixes;
+
+        private Snapshot(List<Brand> entities, long generation) {
+            this.generation = generation;
+            List<BrandResponse> sorted = entities.stream()
+                    .map(BrandResponse::from)
+                    .sorted(Comparator.comparing((BrandResponse b) -> fold(b.name())).thenComparing(BrandResponse::id))
+                    .toList();
+            this.brands = sorted;
+
+            Map<String, BrandResponse> slugs = new HashMap<>();
+            MessageDigest sha256 = ContentHash.newSha256();
+            List<String> keyList = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            for (int i = 0; i < sorted.size(); i++) {
+                BrandResponse b = sorted.get(i);
+                if (b.slug() != null) slugs.putIfAbsent(b.slug(), b);
+                sha256.update((b.id() + ":" + b.version() + ";").getBytes(StandardCharsets.UTF_8));
+                for (String key : new String[]{fold(b.name()), fold(b.slug())}) {
+                    if (!key.isEmpty()) {
+                        keyList.add(key);
+                        owners.add(i);
+                    }
+                }
+            }
+            this.bySlug = Map.copyOf(slugs);
+            this.etag = "\"" + ContentHash.hex(sha256.digest()).substring(0, 32) + "\"";
+
+            this.keys = keyList.toArray(String[]::new);
+            this.keyBrand = owners.stream().mapToInt(Integer::intValue).toArray();
+            int total = 0;
+            for (String k : keys) total += k.length();
+            Long[] boxed = new Long[total];
+            int n = 0;
+            for (int k = 0; k < keys.length; k++) {
+                for (int off = 0; off < keys[k].length(); off++) {
+                    boxed[n++] = ((long) k << 32) | off;
+                }
+            }
+            Arrays.sort(boxed, this::compareSuffixes);
+            this.suffixes = Arrays.stream(boxed).mapToLong(Long::longValue).toArray();
+        }
+
+        /** Strong validator for everything in this snapshot. */
+        public String etag() {
+            return etag;
+        }
+
+        public Optional<BrandResponse> findBySlug(String slug) {
+            return Optional.ofNullable(bySlug.get(slug));
+        }
+
+        /** Brands whose name or slug contains {@code q} (case-insensitive), in name order; all brands if blank. */
+        public List<BrandResponse> search(String q) {
+            String needle = fold(q);
+            if (needle.isEmpty()) return brands;
+
+            // lower bound: first suffix >= needle; every match follows contiguously
+            int lo = 0, hi = suffixes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareToNeedle(suffixes[mid], needle) < 0) lo = mid + 1; else hi = mid;
+            }
+            BitSet hits = new BitSet(brands.size());
+            for (int i = lo; i < suffixes.length && startsWith(suffixes[i], needle); i++) {
+                hits.set(keyBrand[(int) (suffixes[i] >>> 32)]);
+            }
+            List<BrandResponse> result = new ArrayList<>(hits.cardinality());
+            for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+                result.add(brands.get(i));
+            }
+            return result;
+        }
+
+        private int compareSuffixes(long a, long b) {
+            String ka = keys[(int) (a >>> 32)], kb = keys[(int) (b >>> 32)];
+            int ia = (int) a, ib = (int) b;
+            while (ia < ka.length() && ib < kb.length()) {
+                int c = Character.compare(ka.charAt(ia++), kb.charAt(ib++));
+                if (c != 0) return c;
+            }
+            return Integer.compare(ka.length() - ia, kb.length() - ib);
+        }
+
+        private int compareToNeedle(long suffix, String needle) {
+            String key = keys[(int) (suffix >>> 32)];
+            int off = (int) suffix;
+            int len = Math.min(key.length() - off, needle.length());
+            for (int i = 0; i < len; i++) {
+                int c = Character.compare(key.charAt(off + i), needle.charAt(i));
+                if (c != 0) return c;
+            }
+            return Integer.compare(key.length() - off, needle.length());
+        }
+
+        private boolean startsWith(long suffix, String needle) {
+            return keys[(int) (suffix >>> 32)].startsWith(needle, (int) suffix);
+        }
+
+        private static String fold(String s) {
+            return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -7,18 +7,15 @@ import com.spark.electronics_store.repository.BrandRequestRepository;
 import com.spark.electronics_store.repository.UserSyncRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;   // <-- NEW
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import static org.springframework.http.HttpStatus.*;
@@ -32,15 +29,8 @@ public class BrandRequestService {
     private final BrandRepository brandRepository;
     private final BrandService brandService;
     private final UserSyncRepository userSyncRepository;
-    private final InMemoryLogoStore logoStore;
-
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    @org.springframework.beans.factory.annotation.Value("${sync.user-base-url:http://localhost:8080}")
-    private String userBaseUrl;
-
-    @org.springframework.beans.factory.annotation.Value("${sync.shared-secret:moldo}")
-    private String sharedSecret;
+    private final LogoStore logoStore;
+    private final UserManagementSyncClient userManagementSync;
 
     /** Submit a request. */
     @Transactional
@@ -103,13 +93,13 @@ public class BrandRequestService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty file");
         }
         try {
-            logoStore.put(requestId, file.getBytes(), file.getContentType());
-        } catch (IOException e) {
+            logoStore.put(requestId, file, file.getContentType());
+        } catch (UncheckedIOException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read file");
         }
     }
 
-    public InMemoryLogoStore.StoredLogo getLogo(UUID requestId) {
+    public LogoStore.StoredLogo getLogo(UUID requestId) {
         brandRequestRepository.findById(requestId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Request not found"));
         return logoStore.get(requestId)
@@ -138,16 +128,15 @@ public class BrandRequestService {
         user.setRole(Role.BRAND_SELLER);
         userSyncRepository.save(user);
 
-        try {
-            notifyUserManagementRole(user.getId(), Role.BRAND_SELLER.name());
-        } catch (RestClientException ex) {
-            log.warn("User-management sync failed for {}: {}", user.getId(), ex.toString());
-        }
+        // written with the approval; delivered after commit by the outbox relay
+        userManagementSync.enqueueRole(user.getId(), Role.BRAND_SELLER.name());
 
         req.setApprovedBrandId(brand.getId());
         req.setReviewedBy(adminId);
         req.setStatus(BrandRequestStatus.APPROVED);
-        return brandRequestRepository.saveAndFlush(req);
+        BrandRequest saved = brandRequestRepository.saveAndFlush(req);
+        deleteLogoAfterCommit(id);
+        return saved;
     }
 
     @Transactional
@@ -160,20 +149,23 @@ public class BrandRequestService {
         req.setStatus(BrandRequestStatus.REJECTED);
         try { req.getClass().getMethod("setReason", String.class).invoke(req, reason); } catch (Exception ignored) {}
         req.setReviewedBy(adminId);
-        return brandRequestRepository.saveAndFlush(req);
+        BrandRequest saved = brandRequestRepository.saveAndFlush(req);
+        deleteLogoAfterCommit(id);
+        return saved;
     }
 
-    private void notifyUserManagementRole(UUID userId, String roleName) {
-        String url = userBaseUrl.replaceAll("/$", "") + "/internal/sync/users";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(sharedSecret);
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        Map<String, Object> body = Map.of("id", userId.toString(), "role", roleName);
-
-        restTemplate.postForEntity(url, new HttpEntity<>(body, headers), Void.class);
-        log.info("Synced role '{}' to user-management for user {}", roleName, userId);
+    /** A reviewed request's logo is no longer served; drop it once the decision is committed. */
+    private void deleteLogoAfterCommit(UUID requestId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            logoStore.delete(requestId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                logoStore.delete(requestId);
+            }
+        });
     }
 
     /** Ensure there is an APPROVED record for this applicant+brand. */
@@ -0,0 +1,158 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.order.OrderDto;
+import com.spark.electronics_store.mapper.OrderDtoMapper;
+import com.spark.electronics_store.model.Order;
+import com.spark.electronics_store.model.OrderItem;
+import com.spark.electronics_store.repository.OrderItemRepository;
+import com.spark.electronics_store.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * A buyer's order history, newest first, in keyset pages: the cursor is the (created_at, id) of
+ * the last order on the previous page, so deep pages cost the same as the first. Each page loads
+ * its orders' lines in a single query.
+ *
+ * The first page (what the "My orders" screen opens on) is cached briefly per buyer and dropped
+ * when that buyer places an order. The cache holds at most {@code orders.history.first-page-max-entries}
+ * buyers and is swept of expired pages. Every invalidation bumps a version (striped by buyer), and
+ * a page is only served while its version is current, so a page loaded before a concurrent order
+ * committed, and stored after that order's invalidation, is never served.
+ */
+@Service
+public class BuyerOrderHistoryService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    public record Page(List<OrderDto> orders, String nextCursor) {}
+
+    private static final int VERSION_STRIPES = 4096;
+
+    private record CachedPage(int size, Page page, long version, long expiresAtMs) {}
+
+    private final OrderRepository orderRepo;
+    private final OrderItemRepository orderItemRepo;
+    private final OrderDtoMapper mapper;
+    private final long firstPageTtlMs;
+    private final int firstPageMaxEntries;
+    private final ConcurrentHashMap<UUID, CachedPage> firstPages = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    public BuyerOrderHistoryService(OrderRepository orderRepo,
+                                    OrderItemRepository orderItemRepo,
+                                    OrderDtoMapper mapper,
+                                    @Value("${orders.history.first-page-ttl-ms:10000}") long firstPageTtlMs,
+                                    @Value("${orders.history.first-page-max-entries:10000}") int firstPageMaxEntries) {
+        this.orderRepo = orderRepo;
+        this.orderItemRepo = orderItemRepo;
+        this.mapper = mapper;
+        this.firstPageTtlMs = firstPageTtlMs;
+        this.firstPageMaxEntries = firstPageMaxEntries;
+    }
+
+    @Transactional(readOnly = true)
+    public Page page(UUID buyerId, String cursor, int size) {
+        int limit = Math.min(Math.max(1, size), MAX_PAGE_SIZE);
+        if (cursor == null || cursor.isBlank()) {
+            long version = versions.get(stripe(buyerId)); // read before loading: a later bump outdates this page
+            CachedPage cached = firstPages.get(buyerId);
+            if (cached != null && cached.size() == limit && cached.version() == version
+                    && cached.expiresAtMs() > System.currentTimeMillis()) {
+                return cached.page();
+            }
+            Page page = load(buyerId, null, limit);
+            if (firstPages.size() < firstPageMaxEntries || firstPages.containsKey(buyerId)) {
+                firstPages.put(buyerId, new CachedPage(limit, page, version, System.currentTimeMillis() + firstPageTtlMs));
+            }
+            return page;
+        }
+        return load(buyerId, Cursor.decode(cursor), limit);
+    }
+
+    /** Drops the buyer's cached first page once the current transaction commits. */
+    public void invalidateAfterCommit(UUID buyerId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(buyerId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(buyerId);
+            }
+        });
+    }
+
+    private void invalidate(UUID buyerId) {
+        versions.incrementAndGet(stripe(buyerId));
+        firstPages.remove(buyerId);
+    }
+
+    @Scheduled(fixedDelayString = "${orders.history.first-page-sweep-ms:60000}")
+    public void sweepExpired() {
+        long now = System.currentTimeMillis();
+        firstPages.values().removeIf(c -> c.expiresAtMs() <= now);
+    }
+
+    private static int stripe(UUID buyerId) {
+        return Math.floorMod(buyerId.hashCode(), VERSION_STRIPES);
+    }
+
+    private Page load(UUID buyerId, Cursor after, int limit) {
+        Pageable fetch = PageRequest.ofSize(limit + 1); // one extra row tells whether there is a next page
+        List<Order> orders = after == null
+                ? orderRepo.findFirstPageByBuyer(buyerId, fetch)
+                : orderRepo.findPageByBuyerAfter(buyerId, after.createdAt(), after.id(), fetch);
+        boolean more = orders.size() > limit;
+        if (more) orders = orders.subList(0, limit);
+        if (orders.isEmpty()) return new Page(List.of(), null);
+
+        Map<UUID, List<OrderItem>> itemsByOrder = orderItemRepo
+                .findByOrder_IdInOrderByCreatedAtAsc(orders.stream().map(Order::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(i -> i.getOrder().getId()));
+        List<OrderDto> dtos = orders.stream()
+                .map(o -> mapper.toDto(o, itemsByOrder.getOrDefault(o.getId(), List.of())))
+                .toList();
+
+        Order last = orders.getLast();
+        return new Page(dtos, more ? new Cursor(last.getCreatedAt(), last.getId()).encode() : null);
+    }
+
+    /** Opaque to clients: base64url of "createdAt|id". */
+    private record Cursor(Instant createdAt, UUID id) {
+        String encode() {
+            byte[] raw = (createdAt + "|" + id).getBytes(StandardCharsets.UTF_8);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        }
+
+        static Cursor decode(String token) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new Cursor(Instant.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.order.CheckoutTicketResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Admission control for checkout. At most {@code slots} orders are created at once; everyone
+ * else gets a ticket with a queue position and polls for it (an in-memory lookup, no DB), so a
+ * product drop cannot pin every request thread and pool connection on checkout while catalog
+ * browsing starves.
+ *
+ * Slots go to tickets strictly in arrival order. A ticket that reaches the front is READY and
+ * holds a slot for {@code ready-ttl-ms} while its buyer re-submits the order with the ticket;
+ * tickets that stop being polled, or are not used in time, are dropped and their slot passes on.
+ *
+ * With group commit on ({@code orders.intake.group-commit.enabled}), admitted checkouts are what
+ * feed OrderIntakePipeline, so a batch can never hold more orders than there are slots; the
+ * properties derive {@code orders.intake.max-batch} from {@code checkout.waiting-room.slots}.
+ * Raise the slots for bigger batches: the writer still uses a single connection however many
+ * slots feed it.
+ */
+@Service
+@Slf4j
+public class CheckoutWaitingRoom {
+
+    public enum State { WAITING, READY }
+
+    private static final class Ticket {
+        final UUID id;
+        final UUID buyerId;
+        State state = State.WAITING;
+        long lastSeenMs;
+        long readyUntilMs;
+        int rank;            // 1-based place among WAITING tickets when last ranked
+        long grantedAtRank;  // grants handed out at that moment; each later grant moves it up one
+
+        Ticket(UUID id, UUID buyerId, long now) {
+            this.id = id;
+            this.buyerId = buyerId;
+            this.lastSeenMs = now;
+        }
+    }
+
+    /** Proof of a held slot; close it when the checkout is done. */
+    public interface Admission extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final int slots;
+    private final int maxWaiting;
+    private final long pollTimeoutMs;
+    private final long readyTtlMs;
+    private final int retryAfterSeconds;
+
+    // all state guarded by "this"; every operation is a few map/counter updates
+    private final LinkedHashMap<UUID, Ticket> tickets = new LinkedHashMap<>(); // arrival order
+    private int busy;      // slots running a checkout or reserved for a READY ticket
+    private int waiting;   // tickets still WAITING
+    private long granted;  // WAITING -> READY transitions so far; always the oldest WAITING ticket
+
+    public CheckoutWaitingRoom(@Value("${checkout.waiting-room.slots:8}") int slots,
+                               @Value("${checkout.waiting-room.max-waiting:100000}") int maxWaiting,
+                               @Value("${checkout.waiting-room.poll-timeout-ms:20000}") long pollTimeoutMs,
+                               @Value("${checkout.waiting-room.ready-ttl-ms:30000}") long readyTtlMs,
+                               @Value("${checkout.waiting-room.retry-after-seconds:2}") int retryAfterSeconds,
+                               MeterRegistry registry) {
+        this.slots = Math.max(1, slots);
+        this.maxWaiting = maxWaiting;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.readyTtlMs = readyTtlMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("checkout.waiting-room.waiting", this, CheckoutWaitingRoom::waitingCount)
+                .description("Checkout tickets queued for a slot")
+                .register(registry);
+        Gauge.builder("checkout.waiting-room.busy", this, CheckoutWaitingRoom::busyCount)
+                .description("Checkout slots in use or reserved")
+                .register(registry);
+    }
+
+    /**
+     * Takes a slot for this checkout: the one reserved for {@code ticketId} if it is READY, or a
+     * free one when nobody is queued. Returns empty when the buyer has to wait; {@link #enqueue}
+     * then hands out a ticket.
+     */
+    public synchronized Optional<Admission> tryAdmit(UUID buyerId, UUID ticketId) {
+        if (ticketId != null) {
+            Ticket t = tickets.get(ticketId);
+            if (t == null || !t.buyerId.equals(buyerId)) {
+                throw new ResponseStatusException(HttpStatus.GONE, "Checkout ticket expired, queue again");
+            }
+            if (t.state == State.READY) {
+                tickets.remove(ticketId); // its reserved slot now runs this checkout
+                return Optional.of(newAdmission());
+            }
+            t.lastSeenMs = System.currentTimeMillis();
+            return Optional.empty();
+        }
+        if (busy < slots && !hasWaiting()) {
+            busy++;
+            return Optional.of(newAdmission());
+        }
+        return Optional.empty();
+    }
+
+    /** Queues the buyer (or returns their existing ticket) and reports the position. */
+    public synchronized CheckoutTicketResponse enqueue(UUID buyerId, UUID existingTicketId) {
+        if (existingTicketId != null) {
+            Ticket t = tickets.get(existingTicketId);
+            if (t != null && t.buyerId.equals(buyerId)) return view(t);
+        }
+        if (tickets.size() >= maxWaiting) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Checkout queue is full, retry later");
+        }
+        Ticket t = new Ticket(UUID.randomUUID(), buyerId, System.currentTimeMillis());
+        tickets.put(t.id, t);
+        t.rank = ++waiting;
+        t.grantedAtRank = granted;
+        grant();
+        return view(t);
+    }
+
+    /** The cheap poll: marks the ticket alive and reports where it stands. */
+    public synchronized Optional<CheckoutTicketResponse> poll(UUID buyerId, UUID ticketId) {
+        Ticket t = tickets.get(ticketId);
+        if (t == null || !t.buyerId.equals(buyerId)) return Optional.empty();
+        t.lastSeenMs = System.currentTimeMillis();
+        return Optional.of(view(t));
+    }
+
+    private Admission newAdmission() {
+        return new Admission() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                synchronized (CheckoutWaitingRoom.this) {
+                    if (closed) return;
+                    closed = true;
+                    busy--;
+                    grant();
+                }
+            }
+        };
+    }
+
+    /** Hands free slots to the oldest WAITING tickets. */
+    private void grant() {
+        long now = System.currentTimeMillis();
+        Iterator<Ticket> it = tickets.values().iterator();
+        while (busy < slots && it.hasNext()) {
+            Ticket t = it.next();
+            if (t.state != State.WAITING) continue;
+            t.state = State.READY;
+            t.readyUntilMs = now + readyTtlMs;
+            busy++;
+            waiting--;
+            granted++;
+        }
+    }
+
+    /** Re-counts places after tickets were dropped from the middle of the queue. */
+    private void rerank() {
+        int rank = 0;
+        for (Ticket t : tickets.values()) {
+            if (t.state != State.WAITING) continue;
+            t.rank = ++rank;
+            t.grantedAtRank = granted;
+        }
+        waiting = rank;
+    }
+
+    private boolean hasWaiting() {
+        return waiting > 0;
+    }
+
+    private CheckoutTicketResponse view(Ticket t) {
+        long position = t.state == State.READY ? 0 : t.rank - (granted - t.grantedAtRank);
+        return new CheckoutTicketResponse(t.id, t.state.name(), position, t.state == State.READY ? 0 : retryAfterSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.waiting-room.sweep-delay-ms:1000}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        int dropped = 0;
+        Iterator<Ticket> it = tickets.values().iterator();
+        while (it.hasNext()) {
+            Ticket t = it.next();
+            boolean abandoned = t.state == State.WAITING && now - t.lastSeenMs > pollTimeoutMs;
+            boolean unused = t.state == State.READY && now > t.readyUntilMs;
+            if (abandoned || unused) {
+                it.remove();
+                if (unused) busy--;
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            log.debug("Dropped {} stale checkout tickets", dropped);
+            rerank();
+            grant();
+        }
+    }
+
+    private synchronized int waitingCount() {
+        return waiting;
+    }
+
+    private synchronized int busyCount() {
+        return busy;
+    }
+}
@@ -0,0 +1,106 @@
+package com.spark.electronics_store.service;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+/**
+ * Resource over photo bytes still in Postgres, read as fixed-size slices while the response is
+ * written. Heap use per request is one slice, whatever the photo size. Each slice borrows a pooled
+ * connection only for its own query, so a slow client does not pin one; this relies on the
+ * byte-serving routes being excluded from open-in-view (see OpenInViewConfig), which would
+ * otherwise hold the request's connection until the response is done.
+ * Range requests skip straight to the first needed slice.
+ */
+final class ChunkedPhotoResource extends AbstractResource {
+
+    /** Reads one slice; callers bind it to an ownership-checked photo (brand, product, id). */
+    @FunctionalInterface
+    interface ChunkReader {
+        byte[] read(UUID photoId, long offset, int length);
+    }
+
+    private final UUID photoId;
+    private final long size;
+    private final int chunkSize;
+    private final ChunkReader reader;
+
+    ChunkedPhotoResource(UUID photoId, long size, int chunkSize, ChunkReader reader) {
+        this.photoId = photoId;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.reader = reader;
+    }
+
+    @Override
+    public String getDescription() {
+        return "stored photo " + photoId;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return size;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ChunkInputStream();
+    }
+
+    private final class ChunkInputStream extends InputStream {
+        private byte[] chunk = new byte[0];
+        private long chunkStart;
+        private long pos;
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) return -1;
+            return chunk[(int) (pos++ - chunkStart)] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int idx = (int) (pos - chunkStart);
+            int n = Math.min(len, chunk.length - idx);
+            System.arraycopy(chunk, idx, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, size - pos));
+            pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            long buffered = chunkStart + chunk.length - pos;
+            return (int) Math.max(0, buffered);
+        }
+
+        /** Makes sure {@code pos} lies inside {@code chunk}; false at end of photo. */
+        private boolean fill() throws IOException {
+            if (pos >= size) return false;
+            if (pos >= chunkStart && pos < chunkStart + chunk.length) return true;
+            int length = (int) Math.min(chunkSize, size - pos);
+            byte[] next = reader.read(photoId, pos, length);
+            if (next == null || next.length == 0) {
+                throw new IOException("Photo " + photoId + " was removed while being streamed");
+            }
+            chunk = next;
+            chunkStart = pos;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.util.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Brand-request logos on local disk, one file per request plus a small index file that survives
+ * restarts. Total disk use is capped; past the cap the least recently used logos are evicted.
+ * Recently served small logos are also kept in a bounded in-memory tier, so the admin review
+ * screen does not hit the disk for every thumbnail.
+ *
+ * The store is node-local: each node serves from its own index, loaded once at startup, and on
+ * startup deletes files its index does not list. {@code brand.logo.store-dir} must therefore be
+ * a directory only this node uses, never a volume shared with other nodes; a logo is only
+ * visible on the node that stored it.
+ */
+@Service
+@Slf4j
+public class LogoStore {
+
+    public record StoredLogo(Resource body, String contentType, long size, String contentHash) {}
+
+    private record Entry(String contentType, long size, String contentHash) {}
+
+    private static final String INDEX_FILE = "index.tsv";
+    private static final String LOGO_SUFFIX = ".logo";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long memoryBytes;
+    private final long memoryEntryBytes;
+
+    // access-ordered: eldest is the eviction candidate; both maps guarded by "this"
+    private final LinkedHashMap<UUID, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<UUID, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskUsed;
+    private long memoryUsed;
+
+    public LogoStore(@Value("${brand.logo.store-dir:${java.io.tmpdir}/brand-logos}") String directory,
+                     @Value("${brand.logo.store-max-bytes:268435456}") long maxBytes,
+                     @Value("${brand.logo.max-bytes:2097152}") long maxEntryBytes,
+                     @Value("${brand.logo.memory-bytes:8388608}") long memoryBytes) throws IOException {
+        this.directory = Files.createDirectories(Path.of(directory));
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.memoryBytes = memoryBytes;
+        this.memoryEntryBytes = memoryBytes / 16;
+        loadIndex();
+    }
+
+    // ---- helpers ----
+    private Path file(UUID requestId) {
+        return directory.resolve(requestId + LOGO_SUFFIX);
+    }
+
+    private void loadIndex() throws IOException {
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexPath)) {
+            for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+                String[] cols = line.split("\t");
+                if (cols.length != 4) continue;
+                try {
+                    UUID id = UUID.fromString(cols[0]);
+                    Entry e = new Entry(cols[1], Long.parseLong(cols[2]), cols[3]);
+                    if (Files.size(file(id)) == e.size()) {
+                        index.put(id, e);
+                        diskUsed += e.size();
+                    }
+                } catch (IllegalArgumentException | IOException skipped) {
+                    // malformed line or missing file: drop the entry
+                }
+            }
+        }
+        // logo files the index does not know (crash between write and index update) and stale temp files
+        Set<Path> known = new HashSet<>();
+        index.keySet().forEach(id -> known.add(file(id)));
+        known.add(directory.resolve(INDEX_FILE));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path f : files) {
+                if (!known.contains(f)) Files.deleteIfExists(f);
+            }
+        }
+        log.info("Logo store at {}: {} logos, {} bytes", directory, index.size(), diskUsed);
+    }
+
+    // rewritten whole on every change: logos change rarely and the index is a few KB
+    private void writeIndex() throws IOException {
+        Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<UUID, Entry> e : index.entrySet()) {
+                w.write(e.getKey() + "\t" + e.getValue().contentType() + "\t"
+                        + e.getValue().size() + "\t" + e.getValue().contentHash());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void dropFromMemory(UUID requestId) {
+        byte[] removed = memory.remove(requestId);
+        if (removed != null) memoryUsed -= removed.length;
+    }
+
+    private List<UUID> evictFromDisk(UUID keep) {
+        List<UUID> evicted = new ArrayList<>();
+        Iterator<Map.Entry<UUID, Entry>> it = index.entrySet().iterator();
+        while (diskUsed > maxBytes && it.hasNext()) {
+            Map.Entry<UUID, Entry> e = it.next();
+            if (e.getKey().equals(keep)) continue;
+            it.remove();
+            diskUsed -= e.getValue().size();
+            dropFromMemory(e.getKey());
+            evicted.add(e.getKey());
+        }
+        return evicted;
+    }
+
+    private synchronized void remember(UUID requestId, byte[] bytes) {
+        if (!index.containsKey(requestId) || memory.containsKey(requestId)) return;
+        memory.put(requestId, bytes);
+        memoryUsed += bytes.length;
+        Iterator<Map.Entry<UUID, byte[]>> it = memory.entrySet().iterator();
+        while (memoryUsed > memoryBytes && it.hasNext()) {
+            memoryUsed -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    // ---- API ----
+
+    /** Streams the upload to disk (hashing it on the way) and replaces any previous logo for the request. */
+    public void put(UUID requestId, InputStreamSource source, String contentType) {
+        String type = (contentType == null || contentType.isBlank()) ? DEFAULT_CONTENT_TYPE : contentType;
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(directory, requestId.toString(), ".tmp");
+            MessageDigest sha256 = ContentHash.newSha256();
+            long size;
+            try (InputStream in = new DigestInputStream(source.getInputStream(), sha256);
+                 OutputStream out = Files.newOutputStream(tmp)) {
+                size = in.transferTo(out);
+            }
+            if (size == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty file");
+            }
+            if (size > maxEntryBytes) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Logo exceeds " + maxEntryBytes + " bytes");
+            }
+            Entry entry = new Entry(type, size, ContentHash.hex(sha256.digest()));
+
+            List<UUID> evicted;
+            synchronized (this) {
+                Files.move(tmp, file(requestId), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                tmp = null;
+                Entry previous = index.put(requestId, entry);
+                if (previous != null) diskUsed -= previous.size();
+                diskUsed += size;
+                dropFromMemory(requestId);
+                evicted = evictFromDisk(requestId);
+                writeIndex();
+            }
+            for (UUID id : evicted) {
+                Files.deleteIfExists(file(id));
+                log.debug("Evicted logo for brand request {}", id);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store logo for " + requestId, e);
+        } finally {
+            if (tmp != null) {
+                try { Files.deleteIfExists(tmp); } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    public Optional<StoredLogo> get(UUID requestId) {
+        Entry entry;
+        byte[] bytes;
+        synchronized (this) {
+            entry = index.get(requestId);
+            if (entry == null) return Optional.empty();
+            bytes = memory.get(requestId);
+        }
+        if (bytes == null && entry.size() <= memoryEntryBytes) {
+            try {
+                bytes = Files.readAllBytes(file(requestId));
+                remember(requestId, bytes);
+            } catch (IOException e) {
+                log.warn("Logo file for {} unreadable: {}", requestId, e.toString());
+                return Optional.empty();
+            }
+        }
+        Resource body = bytes != null ? new ByteArrayResource(bytes) : new FileSystemResource(file(requestId));
+        return Optional.of(new StoredLogo(body, entry.contentType(), entry.size(), entry.contentHash()));
+    }
+
+    public void delete(UUID requestId) {
+        synchronized (this) {
+            Entry removed = index.remove(requestId);
+            if (removed == null) return;
+            diskUsed -= removed.size();
+            dropFromMemory(requestId);
+            try {
+                writeIndex();
+            } catch (IOException e) {
+                log.warn("Could not rewrite logo index: {}", e.toString());
+            }
+        }
+        try {
+            Files.deleteIfExists(file(requestId));
+        } catch (IOException e) {
+            log.warn("Could not delete logo for {}: {}", requestId, e.toString());
+        }
+    }
+}
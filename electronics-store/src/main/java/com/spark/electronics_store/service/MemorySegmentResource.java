@@ -0,0 +1,81 @@
+package com.spark.electronics_store.service;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Resource view over an off-heap segment. The resource converters copy it into the servlet
+ * stream in small chunks (and skip straight to the offset for Range requests), so serving a
+ * cached photo never allocates a heap array of the photo's size.
+ */
+final class MemorySegmentResource extends AbstractResource {
+
+    private final MemorySegment segment;
+    private final String description;
+
+    MemorySegmentResource(MemorySegment segment, String description) {
+        this.segment = segment;
+        this.description = description;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return segment.byteSize();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new SegmentInputStream(segment);
+    }
+
+    private static final class SegmentInputStream extends InputStream {
+        private final MemorySegment segment;
+        private long pos;
+
+        SegmentInputStream(MemorySegment segment) {
+            this.segment = segment;
+        }
+
+        @Override
+        public int read() {
+            if (pos >= segment.byteSize()) return -1;
+            return segment.get(ValueLayout.JAVA_BYTE, pos++) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            long remaining = segment.byteSize() - pos;
+            if (len == 0) return 0;
+            if (remaining <= 0) return -1;
+            int n = (int) Math.min(len, remaining);
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, segment.byteSize() - pos));
+            pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, segment.byteSize() - pos);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.spark.electronics_store.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spark.electronics_store.model.Order;
+import com.spark.electronics_store.model.OrderItem;
+import com.spark.electronics_store.repository.OrderItemRepository;
+import com.spark.electronics_store.util.Money;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Streams every order line sold under a brand, oldest first, one row per line with its order's
+ * details, as CSV or NDJSON. Rows come from a forward-only database cursor and each entity is
+ * detached once written, so memory use does not grow with the brand's history.
+ *
+ * An export holds a pool connection for as long as it streams, so at most
+ * {@code orders.export.max-concurrent} run at once (the rest get 429). They run on their own
+ * threads with their own timeout ({@code orders.export.timeout}); the app-wide async timeout
+ * is left alone.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] COLUMNS = {
+            "order_id", "order_created_at", "order_status", "line_id", "product_id", "product_name",
+            "qty", "unit_price", "line_total", "currency", "ship_name", "ship_city", "ship_country"
+    };
+
+    private final OrderItemRepository orderItemRepo;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Semaphore running;
+    private final Duration timeout;
+    private final AsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("order-export-");
+
+    public OrderExportService(OrderItemRepository orderItemRepo,
+                              EntityManager entityManager,
+                              ObjectMapper objectMapper,
+                              @Value("${orders.export.max-concurrent:2}") int maxConcurrent,
+                              @Value("${orders.export.timeout:30m}") Duration timeout) {
+        this.orderItemRepo = orderItemRepo;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.running = new Semaphore(Math.max(1, maxConcurrent));
+        this.timeout = timeout;
+    }
+
+    /** Writes one export to the response; call {@link #export} from it so the transaction applies. */
+    @FunctionalInterface
+    public interface Body {
+        void write() throws IOException;
+    }
+
+    /**
+     * Runs {@code body} on the export executor under the export timeout, or refuses with 429 when
+     * {@code orders.export.max-concurrent} exports are already running.
+     */
+    public WebAsyncTask<Void> schedule(Body body) {
+        if (!running.tryAcquire()) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many exports in progress, retry later");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) running.release();
+        };
+        WebAsyncTask<Void> task = new WebAsyncTask<>(timeout.toMillis(), executor, () -> {
+            try {
+                body.write();
+            } finally {
+                release.run();
+            }
+            return null;
+        });
+        task.onCompletion(release); // also covers a request that ends before the task starts
+        return task;
+    }
+
+    /** Must run on the thread that writes the response (the cursor lives in this transaction). */
+    @Transactional(readOnly = true)
+    public void export(UUID brandId, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = format == Format.NDJSON ? objectMapper.getFactory().createGenerator(writer) : null;
+        if (json != null) json.setRootValueSeparator(null); // rows are separated by our newline only
+        if (format == Format.CSV) {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+        try (Stream<OrderItem> lines = orderItemRepo.streamByBrand(brandId)) {
+            lines.forEach(line -> {
+                try {
+                    Object[] row = row(line);
+                    if (json != null) writeJson(json, row); else writeCsv(writer, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // nothing is kept once written; the order is re-read if a later line needs it
+                entityManager.detach(line);
+                entityManager.detach(line.getOrder());
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // usually the client went away
+        }
+        if (json != null) json.flush();
+        writer.flush();
+    }
+
+    private static Object[] row(OrderItem line) {
+        Order o = line.getOrder();
+        int qty = line.getQty() == null ? 1 : line.getQty();
+        String currency = line.getCurrency();
+        return new Object[]{
+                o.getId(), o.getCreatedAt(), o.getStatus(), line.getId(), line.getProductId(), line.getProductName(),
+                qty,
+                Money.toDecimal(line.getUnitPriceMinor(), currency),
+                Money.toDecimal(Math.multiplyExact(line.getUnitPriceMinor(), qty), currency),
+                currency, o.getFullName(), o.getCity(), o.getCountry()
+        };
+    }
+
+    private static void writeJson(JsonGenerator json, Object[] row) throws IOException {
+        json.writeStartObject();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            json.writeFieldName(COLUMNS[i]);
+            Object v = row[i];
+            if (v == null) json.writeNull();
+            else if (v instanceof Number n) json.writeNumber(n.toString());
+            else json.writeString(v.toString());
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeCsv(Writer writer, Object[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) writer.write(',');
+            if (row[i] != null) writer.write(csvField(row[i].toString()));
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180 quoting; a leading formula character (OWASP CSV injection list, tab and CR included)
+    // is neutralised for spreadsheet imports
+    private static String csvField(String s) {
+        if (!s.isEmpty() && "=+-@\t\r".indexOf(s.charAt(0)) >= 0) s = "'" + s;
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+}
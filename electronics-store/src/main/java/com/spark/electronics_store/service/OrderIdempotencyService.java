@@ -0,0 +1,182 @@
+package com.spark.electronics_store.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spark.electronics_store.dto.order.OrderCreateRequest;
+import com.spark.electronics_store.dto.order.OrderDto;
+import com.spark.electronics_store.mapper.OrderDtoMapper;
+import com.spark.electronics_store.model.Order;
+import com.spark.electronics_store.model.OrderIdempotencyKey;
+import com.spark.electronics_store.repository.OrderIdempotencyKeyRepository;
+import com.spark.electronics_store.util.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Idempotency-Key support for POST /orders. A key (scoped to the buyer) maps to the order the
+ * first request created:
+ *  - repeats are answered from a bounded in-memory map of recent outcomes, then from the
+ *    order_idempotency_keys table (restarts, other nodes);
+ *  - a repeat arriving while the first request is still running waits for that result
+ *    instead of creating a second order;
+ *  - across nodes, the unique (buyer, key) constraint lets only one insert commit; the loser
+ *    replays the winner's order.
+ * Reusing a key with a different request body is rejected with 422.
+ */
+@Service
+@Slf4j
+public class OrderIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int RECENT_MAX_ENTRIES = 10_000;
+
+    private final OrderService orderService;
+    private final OrderIdempotencyKeyRepository keyRepository;
+    private final OrderDtoMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Duration waitTimeout;
+
+    private record Outcome(String requestHash, OrderDto order) {}
+
+    private final ConcurrentHashMap<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Outcome> recent = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Outcome> eldest) {
+            return size() > RECENT_MAX_ENTRIES;
+        }
+    });
+
+    public OrderIdempotencyService(OrderService orderService,
+                                   OrderIdempotencyKeyRepository keyRepository,
+                                   OrderDtoMapper mapper,
+                                   ObjectMapper objectMapper,
+                                   @Value("${orders.idempotency.retention-hours:24}") long retentionHours,
+                                   @Value("${orders.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs) {
+        this.orderService = orderService;
+        this.keyRepository = keyRepository;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.retention = Duration.ofHours(retentionHours);
+        this.waitTimeout = Duration.ofMillis(waitTimeoutMs);
+    }
+
+    /**
+     * The order an earlier request with this key already created, if any, without creating one.
+     * Lets a retry be answered before it competes for a checkout slot.
+     */
+    public Optional<OrderDto> completed(UUID buyerId, String key, OrderCreateRequest req) {
+        checkKey(key);
+        String requestHash = fingerprint(req);
+        Outcome done = recent.get(buyerId + ":" + key);
+        if (done == null) {
+            done = keyRepository.findByBuyerIdAndKey(buyerId, key).map(this::load).orElse(null);
+        }
+        return done == null ? Optional.empty() : Optional.of(replay(done, requestHash));
+    }
+
+    public OrderDto create(UUID buyerId, String key, OrderCreateRequest req) {
+        checkKey(key);
+        String requestHash = fingerprint(req);
+        String slot = buyerId + ":" + key;
+
+        Outcome done = recent.get(slot);
+        if (done != null) return replay(done, requestHash);
+
+        CompletableFuture<Outcome> mine = new CompletableFuture<>();
+        CompletableFuture<Outcome> running = inFlight.putIfAbsent(slot, mine);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+        try {
+            Outcome outcome = execute(buyerId, key, requestHash, req);
+            recent.put(slot, outcome);
+            mine.complete(outcome);
+            return replay(outcome, requestHash);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(slot, mine);
+        }
+    }
+
+    private static void checkKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key must be 1-" + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    private Outcome execute(UUID buyerId, String key, String requestHash, OrderCreateRequest req) {
+        Optional<OrderIdempotencyKey> stored = keyRepository.findByBuyerIdAndKey(buyerId, key);
+        if (stored.isPresent()) {
+            return load(stored.get());
+        }
+        OrderIdempotencyKey record = OrderIdempotencyKey.builder()
+                .id(UUID.randomUUID())
+                .buyerId(buyerId)
+                .key(key)
+                .requestHash(requestHash)
+                .build();
+        try {
+            Order order = orderService.create(req, record);
+            return new Outcome(requestHash, mapper.toDto(order));
+        } catch (DataIntegrityViolationException e) {
+            // another node committed this key first; its order is the answer
+            return keyRepository.findByBuyerIdAndKey(buyerId, key).map(this::load).orElseThrow(() -> e);
+        }
+    }
+
+    private Outcome load(OrderIdempotencyKey stored) {
+        OrderDto order = orderService.get(stored.getOrderId())
+                .map(mapper::toDto)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.GONE, "Order for this Idempotency-Key no longer exists"));
+        return new Outcome(stored.getRequestHash(), order);
+    }
+
+    private static OrderDto replay(Outcome outcome, String requestHash) {
+        if (!outcome.requestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request");
+        }
+        return outcome.order();
+    }
+
+    private Outcome await(CompletableFuture<Outcome> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+        } catch (ExecutionException e) {
+            // the first attempt failed; report the same failure rather than silently re-running
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", e);
+        }
+    }
+
+    private String fingerprint(OrderCreateRequest req) {
+        try {
+            return ContentHash.sha256Hex(objectMapper.writeValueAsBytes(req));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unserializable order request", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.cleanup-delay-ms:3600000}")
+    public void purgeExpired() {
+        int removed = keyRepository.deleteOlderThan(Instant.now().minus(retention));
+        if (removed > 0) log.debug("Purged {} expired idempotency keys", removed);
+    }
+}
@@ -0,0 +1,227 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.order.OrderCreateRequest;
+import com.spark.electronics_store.dto.order.OrderDto;
+import com.spark.electronics_store.mapper.OrderDtoMapper;
+import com.spark.electronics_store.model.Order;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional group-commit path for POST /orders ({@code orders.intake.group-commit.enabled}).
+ * Request threads queue their order and wait on a future; one writer thread drains the queue
+ * and creates each batch of orders in a single transaction: one connection, one flush of the
+ * batch's order and line inserts (JDBC-batched, {@code hibernate.jdbc.batch_size}) and one
+ * commit, instead of one of each per order.
+ *
+ * An order that fails (sold out, unknown buyer, ...) must not take its batch-mates with it. The
+ * steps that fail for a single order's reasons (validation, the stock reservation) run first,
+ * each order inside its own savepoint ({@code PROPAGATION_NESTED}, see TransactionConfig), so a
+ * failure rolls back that order alone. The survivors are then inserted together. A failure the
+ * writer cannot pin on one order (at that flush or at commit) falls back to one transaction per
+ * order for that batch; anything else, errors included, fails the batch's callers at once
+ * instead of leaving them to time out.
+ */
+@Service
+@Slf4j
+public class OrderIntakePipeline {
+
+    private record Pending(OrderCreateRequest request, CompletableFuture<OrderDto> result, long enqueuedAt) {}
+
+    private final OrderService orderService;
+    private final OrderDtoMapper mapper;
+    private final StockGate stockGate;
+    private final EntityManager entityManager;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate savepoint;
+    private final boolean enabled;
+    private final int capacity;
+    private final int maxBatch;
+    private final long waitTimeoutMs;
+
+    // lock-free: producers only CAS the depth counter and link a node; the writer is the only consumer
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Timer queueWait;
+    private final Timer batchCommit;
+    private final DistributionSummary batchSize;
+
+    public OrderIntakePipeline(OrderService orderService,
+                               OrderDtoMapper mapper,
+                               StockGate stockGate,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry registry,
+                               @Value("${orders.intake.group-commit.enabled:false}") boolean enabled,
+                               @Value("${orders.intake.queue-capacity:2048}") int capacity,
+                               @Value("${orders.intake.max-batch:64}") int maxBatch,
+                               @Value("${orders.intake.wait-timeout-ms:30000}") long waitTimeoutMs) {
+        this.orderService = orderService;
+        this.mapper = mapper;
+        this.stockGate = stockGate;
+        this.entityManager = entityManager;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.savepoint = new TransactionTemplate(transactionManager);
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.waitTimeoutMs = waitTimeoutMs;
+
+        Gauge.builder("orders.intake.queue.depth", depth, AtomicInteger::get)
+                .description("Orders waiting for the group-commit writer")
+                .register(registry);
+        this.queueWait = Timer.builder("orders.intake.queue.wait")
+                .description("Time from enqueue until the writer picks an order up")
+                .register(registry);
+        this.batchCommit = Timer.builder("orders.intake.batch.commit")
+                .description("Time to create and commit one batch, retries included")
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("orders.intake.batch.size")
+                .description("Orders per group-commit batch")
+                .register(registry);
+
+        this.writer = enabled
+                ? Thread.ofPlatform().name("order-intake-writer").daemon().start(this::drainLoop)
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Queues the order and waits for the batch it lands in to commit. */
+    public OrderDto create(OrderCreateRequest req) {
+        if (req.getBuyerId() == null) throw new IllegalArgumentException("BuyerId is required");
+        if (req.getItems() == null || req.getItems().isEmpty()) {
+            throw new IllegalArgumentException("No items provided");
+        }
+        if (!running) throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order intake is shutting down");
+
+        int d;
+        do {
+            d = depth.get();
+            if (d >= capacity) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many orders in progress, retry shortly");
+            }
+        } while (!depth.compareAndSet(d, d + 1));
+
+        Pending pending = new Pending(req, new CompletableFuture<>(), System.nanoTime());
+        queue.offer(pending);
+        LockSupport.unpark(writer);
+        return await(pending.result());
+    }
+
+    private OrderDto await(CompletableFuture<OrderDto> result) {
+        try {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // the order may still commit; clients should retry with an Idempotency-Key
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Order not confirmed in time");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", e);
+        }
+    }
+
+    // ---- writer ----
+
+    private void drainLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            Pending p;
+            while (batch.size() < maxBatch && (p = queue.poll()) != null) {
+                depth.decrementAndGet();
+                queueWait.record(System.nanoTime() - p.enqueuedAt(), TimeUnit.NANOSECONDS);
+                batch.add(p);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(50));
+                continue;
+            }
+            batchSize.record(batch.size());
+            try {
+                batchCommit.record(() -> commit(batch));
+            } catch (Throwable t) {
+                log.error("Group commit writer failed on a batch of {} orders", batch.size(), t);
+                ResponseStatusException failed = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order not created, retry", t);
+                batch.forEach(b -> b.result().completeExceptionally(failed));
+            }
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        List<Pending> ok = new ArrayList<>(batch.size());
+        List<OrderDto> created = new ArrayList<>(batch.size());
+        try {
+            tx.executeWithoutResult(status -> {
+                List<Order> prepared = new ArrayList<>(batch.size());
+                for (Pending p : batch) {
+                    try {
+                        prepared.add(stockGate.releaseIfFails(() -> savepoint.execute(s -> orderService.prepare(p.request()))));
+                        ok.add(p);
+                    } catch (RuntimeException e) {
+                        p.result().completeExceptionally(e);
+                    }
+                }
+                if (prepared.isEmpty()) return;
+                orderService.savePrepared(prepared);
+                entityManager.flush();
+                prepared.forEach(order -> created.add(mapper.toDto(order)));
+            });
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} orders failed, committing them one by one: {}", ok.size(), e.toString());
+            ok.forEach(this::commitAlone);
+            return;
+        }
+        for (int i = 0; i < ok.size(); i++) {
+            ok.get(i).result().complete(created.get(i));
+        }
+    }
+
+    private void commitAlone(Pending p) {
+        try {
+            p.result().complete(tx.execute(status -> mapper.toDto(orderService.create(p.request()))));
+        } catch (RuntimeException e) {
+            p.result().completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
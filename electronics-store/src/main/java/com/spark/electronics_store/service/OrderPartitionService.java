@@ -0,0 +1,386 @@
+package com.spark.electronics_store.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Monthly range partitions (UTC, on created_at) for {@code orders} and {@code order_items}.
+ *
+ * Hibernate creates both as plain tables; on startup they are swapped for partitioned tables with
+ * the same columns (primary keys become (id, created_at), as Postgres requires the partition key
+ * in every unique constraint, and the order_items → orders foreign key is dropped for the same
+ * reason). There is no default partition, which DETACH ... CONCURRENTLY does not allow; rows are
+ * always stamped with the current time, so the premade months cover every insert.
+ *
+ * A daily task, run by one node at a time under an advisory lock, keeps {@code premake-months}
+ * partitions ready ahead of time. Archiving is opt-in: only when {@code orders.archive.dir} is set
+ * (to durable storage, never the temp directory) are months older than {@code hot-months} moved
+ * out; otherwise every partition is kept. Each month is written as gzipped NDJSON
+ * ({@code orders-2025-01.ndjson.gz}, {@code order_items-2025-01.ndjson.gz}). The file and its directory
+ * are fsynced and its row count is read back and checked against the partition before the
+ * partition is detached concurrently and dropped. {@link #openArchive} reads those files back for
+ * the admin endpoint.
+ *
+ * Queries with a created_at range (buyer history keyset pages, exports) are pruned at plan time.
+ */
+@Service
+@DependsOn("dataSourceScriptDatabaseInitializer") // Hibernate schema + db/schema-extras.sql first
+@Slf4j
+public class OrderPartitionService {
+
+    private static final List<String> TABLES = List.of("orders", "order_items");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final DateTimeFormatter FILE_MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final Pattern PARTITION = Pattern.compile("(orders|order_items)_p(\\d{4}_\\d{2})");
+    private static final Pattern ARCHIVE_FILE = Pattern.compile("(orders|order_items)-(\\d{4}-\\d{2})\\.ndjson\\.gz");
+    private static final int EXPORT_FETCH_SIZE = 1_000;
+    /** Advisory lock key for {@link #maintain}; any constant no other code uses. */
+    private static final long MAINTENANCE_LOCK = 0x6f72645f70617274L; // "ord_part"
+
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate exportJdbc; // same DataSource, streams rows with a fetch size
+    private final TransactionTemplate tx;
+    private final TransactionTemplate snapshotTx; // count and export read the same snapshot
+    private final int premakeMonths;
+    private final int hotMonths;
+    private final Path archiveDir; // null: archiving is off
+
+    public OrderPartitionService(JdbcTemplate jdbc,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${orders.partitions.premake-months:3}") int premakeMonths,
+                                 @Value("${orders.partitions.hot-months:12}") int hotMonths,
+                                 @Value("${orders.archive.dir:}") String archiveDir) throws IOException {
+        this.jdbc = jdbc;
+        this.exportJdbc = new JdbcTemplate(jdbc.getDataSource());
+        this.exportJdbc.setFetchSize(EXPORT_FETCH_SIZE);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.snapshotTx = new TransactionTemplate(transactionManager);
+        this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTx.setReadOnly(true);
+        this.premakeMonths = Math.max(1, premakeMonths);
+        this.hotMonths = Math.max(1, hotMonths);
+        if (archiveDir == null || archiveDir.isBlank()) {
+            log.warn("orders.archive.dir is not set; order months are kept in the database and never archived");
+            this.archiveDir = null;
+        } else {
+            this.archiveDir = Files.createDirectories(durableDir(archiveDir));
+        }
+    }
+
+    /** Archived months exist nowhere else, so the directory must outlive restarts. */
+    private static Path durableDir(String dir) {
+        Path path = Path.of(dir).toAbsolutePath().normalize();
+        Path tmp = Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        if (path.startsWith(tmp)) {
+            throw new IllegalStateException("orders.archive.dir must not be under the temp directory " + tmp);
+        }
+        return path;
+    }
+
+    @PostConstruct
+    void partitionOnStartup() {
+        for (String table : TABLES) {
+            if (!isPartitioned(table)) convert(table);
+        }
+        maintain();
+    }
+
+    // ---- conversion ----
+
+    private boolean isPartitioned(String table) {
+        String kind = jdbc.queryForObject("select c.relkind::text from pg_class c where c.oid = to_regclass(?)", String.class, table);
+        return "p".equals(kind);
+    }
+
+    /** Replaces the plain table with a partitioned one holding the same rows, in one transaction. */
+    private void convert(String table) {
+        String heap = table + "_unpartitioned";
+        tx.executeWithoutResult(status -> {
+            // foreign keys pointing at the table cannot follow it: a partitioned PK includes created_at
+            for (String[] fk : jdbc.query("""
+                    select conrelid::regclass::text, conname from pg_constraint
+                    where contype = 'f' and confrelid = to_regclass(?)
+                    """, (rs, i) -> new String[]{rs.getString(1), rs.getString(2)}, table)) {
+                jdbc.execute("alter table " + fk[0] + " drop constraint " + fk[1]);
+            }
+            List<String> outgoing = jdbc.queryForList("""
+                    select pg_get_constraintdef(oid) from pg_constraint
+                    where contype = 'f' and conrelid = to_regclass(?)
+                    """, String.class, table);
+
+            jdbc.execute("alter table " + table + " rename to " + heap);
+            jdbc.execute("create table " + table + " (like " + heap + " including defaults including constraints)"
+                    + " partition by range (created_at)");
+
+            // partitions for every month already holding rows
+            Timestamp[] range = jdbc.queryForObject("select min(created_at), max(created_at) from " + heap,
+                    (rs, i) -> new Timestamp[]{rs.getTimestamp(1), rs.getTimestamp(2)});
+            if (range[0] != null) {
+                YearMonth first = YearMonth.from(range[0].toInstant().atZone(ZoneOffset.UTC));
+                YearMonth last = YearMonth.from(range[1].toInstant().atZone(ZoneOffset.UTC));
+                for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1)) createPartition(table, m);
+            }
+            int copied = jdbc.update("insert into " + table + " select * from " + heap);
+            jdbc.execute("drop table " + heap);
+
+            // keys and indexes only now: their names are still taken until the old table is gone
+            jdbc.execute("alter table " + table + " add primary key (id, created_at)");
+            for (String fk : outgoing) jdbc.execute("alter table " + table + " add " + fk);
+            if (table.equals("orders")) {
+                jdbc.execute("create index idx_orders_buyer_created on orders (buyer_id, created_at, id)");
+            } else {
+                jdbc.execute("create index idx_order_items_brand_created on order_items (brand_id, created_at)");
+                jdbc.execute("create index idx_order_items_order on order_items (order_id)");
+            }
+            log.info("Partitioned {} by month ({} rows moved)", table, copied);
+        });
+    }
+
+    // ---- maintenance ----
+
+    /**
+     * Creates upcoming partitions and archives expired ones. Safe to run repeatedly; when another
+     * node holds the lock this run is skipped. The lock is session-level on a connection held for
+     * the run, since DETACH ... CONCURRENTLY cannot run inside a transaction.
+     */
+    @Scheduled(cron = "${orders.partitions.maintenance-cron:0 15 3 * * *}", zone = "UTC")
+    public void maintain() {
+        jdbc.execute((ConnectionCallback<Void>) con -> {
+            try (Statement st = con.createStatement()) {
+                try (ResultSet rs = st.executeQuery("select pg_try_advisory_lock(" + MAINTENANCE_LOCK + ")")) {
+                    if (!rs.next() || !rs.getBoolean(1)) {
+                        log.info("Partition maintenance already running on another node; skipped");
+                        return null;
+                    }
+                }
+                try {
+                    maintainLocked();
+                } finally {
+                    st.execute("select pg_advisory_unlock(" + MAINTENANCE_LOCK + ")");
+                }
+            }
+            return null;
+        });
+    }
+
+    private void maintainLocked() {
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        for (String table : TABLES) {
+            for (int i = 0; i <= premakeMonths; i++) {
+                YearMonth m = now.plusMonths(i);
+                try {
+                    tx.executeWithoutResult(status -> createPartition(table, m));
+                } catch (RuntimeException e) {
+                    log.warn("Could not create partition {} for {}: {}", partitionName(table, m), m, e.getMessage());
+                }
+            }
+        }
+
+        if (archiveDir == null) return; // no durable place to put them: nothing is detached or dropped
+
+        YearMonth oldestHot = now.minusMonths(hotMonths - 1L);
+        TreeSet<YearMonth> expired = new TreeSet<>();
+        for (String table : TABLES) {
+            for (YearMonth m : partitionMonths(table)) {
+                if (m.isBefore(oldestHot)) expired.add(m);
+            }
+        }
+        for (YearMonth m : expired) {
+            try {
+                archive(m);
+            } catch (RuntimeException e) {
+                log.error("Archiving orders for {} failed; partitions kept", m, e);
+            }
+        }
+    }
+
+    private void createPartition(String table, YearMonth month) {
+        String from = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toOffsetDateTime().toString();
+        String to = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toOffsetDateTime().toString();
+        jdbc.execute("create table if not exists " + partitionName(table, month)
+                + " partition of " + table + " for values from ('" + from + "') to ('" + to + "')");
+    }
+
+    private List<YearMonth> partitionMonths(String table) {
+        return jdbc.queryForList("""
+                        select c.relname::text from pg_inherits i
+                        join pg_class c on c.oid = i.inhrelid
+                        where i.inhparent = to_regclass(?)
+                        """, String.class, table).stream()
+                .map(PARTITION::matcher)
+                .filter(Matcher::matches)
+                .map(m -> YearMonth.parse(m.group(2), SUFFIX))
+                .toList();
+    }
+
+    /**
+     * Writes both tables' partitions for the month to gzip files and verifies them, and only then
+     * detaches and drops the partitions. Any failure leaves the partitions in place for the next run.
+     */
+    private void archive(YearMonth month) {
+        for (String table : TABLES) {
+            if (!partitionExists(table, month)) continue;
+            String partition = partitionName(table, month);
+            Path file = archiveFile(table, month);
+            long rows = export(partition, file);
+            long archived = countArchivedRows(file);
+            if (archived != rows) {
+                throw new IllegalStateException(file + " holds " + archived + " rows, " + partition + " has " + rows);
+            }
+            detach(table, partition);
+            // nothing writes to month-old rows, but re-check now that the table is out of reach
+            long detachedRows = countRows(partition);
+            if (detachedRows != archived) {
+                throw new IllegalStateException(partition + " changed to " + detachedRows + " rows while archiving;"
+                        + " kept detached for manual review");
+            }
+            jdbc.execute("drop table " + partition);
+        }
+        log.info("Archived orders for {} to {}", month, archiveDir);
+    }
+
+    /** DETACH CONCURRENTLY takes only a SHARE UPDATE EXCLUSIVE lock on the parent; it must run outside a transaction. */
+    private void detach(String table, String partition) {
+        Boolean pending = jdbc.queryForObject(
+                "select inhdetachpending from pg_inherits where inhrelid = to_regclass(?)", Boolean.class, partition);
+        // an earlier run was interrupted between the two transactions of a concurrent detach
+        String mode = Boolean.TRUE.equals(pending) ? " finalize" : " concurrently";
+        jdbc.execute("alter table " + table + " detach partition " + partition + mode);
+    }
+
+    private long countRows(String table) {
+        Long n = jdbc.queryForObject("select count(*) from " + table, Long.class);
+        return n == null ? 0 : n;
+    }
+
+    private boolean partitionExists(String table, YearMonth month) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("select to_regclass(?) is not null", Boolean.class, partitionName(table, month)));
+    }
+
+    /** Writes the partition to {@code target} durably and returns its row count in the exported snapshot. */
+    private long export(String partition, Path target) {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        long rows;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024), StandardCharsets.UTF_8))) {
+            // server-side cursor: pgjdbc streams with a fetch size only inside a transaction
+            rows = snapshotTx.execute(status -> {
+                long count = countRows(partition);
+                exportJdbc.query("select row_to_json(t)::text from " + partition + " t", rs -> {
+                    try {
+                        out.write(rs.getString(1));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                return count;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + tmp, e);
+        }
+        try {
+            fsync(tmp, StandardOpenOption.WRITE);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fsync(archiveDir, StandardOpenOption.READ); // makes the rename itself durable
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not persist " + target, e);
+        }
+        return rows;
+    }
+
+    private static void fsync(Path path, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, mode)) {
+            channel.force(true);
+        }
+    }
+
+    /** Reads the archive back in full; a truncated or corrupt file fails here instead of after the drop. */
+    private static long countArchivedRows(Path file) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8))) {
+            long lines = 0;
+            while (in.readLine() != null) lines++;
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read back " + file, e);
+        }
+    }
+
+    // ---- archive reads ----
+
+    /** Months with archived orders, oldest first. */
+    public List<String> archivedMonths() {
+        if (archiveDir == null) return List.of();
+        TreeSet<String> months = new TreeSet<>();
+        try (var files = Files.list(archiveDir)) {
+            files.forEach(f -> {
+                Matcher m = ARCHIVE_FILE.matcher(f.getFileName().toString());
+                if (m.matches()) months.add(m.group(2));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return List.copyOf(months);
+    }
+
+    /** Decompressing stream over one archived month of {@code orders} or {@code order_items} (NDJSON). */
+    public Optional<InputStream> openArchive(String table, String month) throws IOException {
+        if (archiveDir == null || !TABLES.contains(table)) return Optional.empty();
+        YearMonth ym;
+        try {
+            ym = YearMonth.parse(month, FILE_MONTH);
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+        Path file = archiveFile(table, ym);
+        if (!Files.exists(file)) return Optional.empty();
+        return Optional.of(new GZIPInputStream(Files.newInputStream(file), 64 * 1024));
+    }
+
+    private Path archiveFile(String table, YearMonth month) {
+        return archiveDir.resolve(table + "-" + month.format(FILE_MONTH) + ".ndjson.gz");
+    }
+
+    private static String partitionName(String table, YearMonth month) {
+        return table + "_p" + month.format(SUFFIX);
+    }
+}
@@ -2,20 +2,29 @@ package com.spark.electronics_store.service;
 
 import com.spark.electronics_store.dto.order.OrderCreateRequest;
 import com.spark.electronics_store.model.Order;
+import com.spark.electronics_store.model.OrderIdempotencyKey;
 import com.spark.electronics_store.model.OrderItem;
 import com.spark.electronics_store.model.OrderStatus;
 import com.spark.electronics_store.model.Product;
 import com.spark.electronics_store.model.UserSync;
+import com.spark.electronics_store.repository.OrderIdempotencyKeyRepository;
+import com.spark.electronics_store.repository.OrderItemRepository;
 import com.spark.electronics_store.repository.OrderRepository;
 import com.spark.electronics_store.repository.ProductRepository;
 import com.spark.electronics_store.repository.UserSyncRepository;
+import com.spark.electronics_store.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -27,9 +36,34 @@ public class OrderService {
     private final OrderRepository orderRepo;
     private final ProductRepository productRepository;
     private final UserSyncRepository userSyncRepository;
+    private final OrderItemRepository orderItemRepo;
+    private final SalesRollupService salesRollupService;
+    private final OrderIdempotencyKeyRepository idempotencyKeyRepo;
+    private final StockGate stockGate;
+    private final JdbcTemplate jdbcTemplate;
+    private final BuyerOrderHistoryService buyerOrderHistory;
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String DEFAULT_CURRENCY = "RON";
+
+    // only ever succeeds while enough units remain, so concurrent checkouts cannot oversell
+    private static final String RESERVE_STOCK =
+            "update product set stock = stock - ? where id = ? and stock is not null and stock >= ?";
 
     @Transactional
     public Order create(OrderCreateRequest req) {
+        return orderRepo.save(prepare(req));
+    }
+
+    /**
+     * Everything {@link #create(OrderCreateRequest)} does except the insert: validates the
+     * request, reserves stock and books the sales rollup in the caller's transaction, and returns
+     * the order unsaved. For group commit, which rolls back to a savepoint when an order fails
+     * here and then inserts the surviving orders together (see {@link #savePrepared}). It has no
+     * transaction boundary of its own: going through {@code @Transactional} would mark the whole
+     * surrounding transaction rollback-only on failure.
+     */
+    public Order prepare(OrderCreateRequest req) {
         if (req == null) throw new IllegalArgumentException("Request is null");
         if (req.getBuyerId() == null) throw new IllegalArgumentException("BuyerId is required");
         if (req.getItems() == null || req.getItems().isEmpty()) {
@@ -67,8 +101,9 @@ public class OrderService {
         // Currency: prefer request, else first product currency, else RON
         order.setCurrency(resolveCurrency(req.getCurrency(), productMap.values()));
 
-        // Build lines
+        // Build lines; amounts are minor units of the order currency (see Money)
         List<OrderItem> lines = new ArrayList<>();
+        long subtotal = 0;
 
         for (OrderCreateRequest.Item it : req.getItems()) {
             UUID pid = it.getProductId();
@@ -82,20 +117,26 @@ public class OrderService {
                 continue;
             }
 
-            int qty = Math.max(1, it.getQuantity());
-            BigDecimal unit = it.getPriceAtPurchase();
-            if (unit == null) unit = p.getPrice();
-            if (unit == null) unit = BigDecimal.ZERO;
+            // the product's minor units are only meaningful in its own currency; never reinterpret them
+            if (!currencyOf(p).equalsIgnoreCase(order.getCurrency())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product " + p.getId() + " is priced in "
+                        + currencyOf(p) + ", not in the order currency " + order.getCurrency());
+            }
 
-            BigDecimal lineTotal = unit.multiply(BigDecimal.valueOf(qty))
-                    .setScale(2, RoundingMode.HALF_UP);
+            int qty = Math.max(1, it.getQuantity());
+            long unit;
+            if (it.getPriceAtPurchase() != null) unit = Money.toMinor(it.getPriceAtPurchase(), order.getCurrency());
+            else if (p.getPriceMinor() != null) unit = p.getPriceMinor();
+            else unit = 0;
+            subtotal = Math.addExact(subtotal, Math.multiplyExact(unit, qty));
 
             OrderItem line = new OrderItem();
             line.setId(UUID.randomUUID());
             line.setOrder(order);
             line.setProductId(p.getId());         // snapshot reference
             line.setProductName(p.getName());     // snapshot name
-            line.setUnitPrice(unit.setScale(2, RoundingMode.HALF_UP));
+            line.setBrandId(p.getBrand().getId()); // snapshot brand
+            line.setUnitPriceMinor(unit);
             line.setQty(qty);
             line.setCurrency(order.getCurrency()); // snapshot currency (same as order)
 
@@ -106,17 +147,13 @@ public class OrderService {
             throw new IllegalArgumentException("No valid items");
         }
 
-        // Totals
-        BigDecimal subtotal = lines.stream()
-                .map(li -> li.getUnitPrice().multiply(BigDecimal.valueOf(li.getQty())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+        reserveStock(lines, productMap);
 
         order.setItems(lines);           // cascade saves items
-        order.setSubtotal(subtotal);
-        order.setShipping(BigDecimal.ZERO);
-        order.setTax(BigDecimal.ZERO);
-        order.setTotal(subtotal);
+        order.setSubtotalMinor(subtotal);
+        order.setShippingMinor(0);
+        order.setTaxMinor(0);
+        order.setTotalMinor(subtotal);
         // Optional: set an initial status if you use it
         try {
             order.setStatus(OrderStatus.PENDING);
@@ -124,32 +161,91 @@ public class OrderService {
             // if enum/value not present, leave null
         }
 
-        return orderRepo.save(order);
+        salesRollupService.record(order, LocalDate.now(ZoneOffset.UTC));
+        buyerOrderHistory.invalidateAfterCommit(buyer.getId());
+        return order;
+    }
+
+    /** Persists orders returned by {@link #prepare}, in the caller's transaction; inserts go out at its next flush. */
+    public List<Order> savePrepared(List<Order> orders) {
+        return orderRepo.saveAll(orders);
     }
 
-    public List<Order> listByBuyer(UUID buyerId) {
-        return orderRepo.findByBuyer_IdOrderByCreatedAtDesc(buyerId);
+    /** Same as {@link #create(OrderCreateRequest)}, recording the idempotency key in the same transaction. */
+    @Transactional
+    public Order create(OrderCreateRequest req, OrderIdempotencyKey idempotencyKey) {
+        Order order = create(req);
+        idempotencyKey.setOrderId(order.getId());
+        idempotencyKeyRepo.save(idempotencyKey); // unique (buyer, key): a concurrent duplicate fails at commit
+        return order;
     }
 
     public Optional<Order> get(UUID id) {
         return orderRepo.findById(id);
     }
 
+    /**
+     * Takes the ordered units off every stock-tracked product in one JDBC batch of conditional
+     * UPDATEs (ids sorted, so two orders for the same products lock rows in the same order).
+     * Any line without enough stock fails the whole order with 409; the transaction rolls back
+     * the other decrements.
+     */
+    private void reserveStock(List<OrderItem> lines, Map<UUID, Product> productMap) {
+        Map<UUID, Integer> wanted = new TreeMap<>();
+        for (OrderItem line : lines) {
+            if (productMap.get(line.getProductId()).getStock() != null) {
+                wanted.merge(line.getProductId(), line.getQty(), Integer::sum);
+            }
+        }
+        if (wanted.isEmpty()) return;
+
+        List<Object[]> rows = new ArrayList<>(wanted.size());
+        for (Map.Entry<UUID, Integer> e : wanted.entrySet()) {
+            Product p = productMap.get(e.getKey());
+            StockGate.Hold hold = stockGate.tryTake(p.getId(), e.getValue(), p::getStock);
+            if (hold == null) throw outOfStock(p);
+            stockGate.releaseOnRollback(hold);
+            rows.add(new Object[]{e.getValue(), e.getKey(), e.getValue()});
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_STOCK, rows);
+        int i = 0;
+        for (UUID productId : wanted.keySet()) {
+            // SUCCESS_NO_INFO (-2) means the driver did not report counts; treat as applied
+            if (updated[i++] == 0) throw outOfStock(productMap.get(productId));
+        }
+    }
+
+    private static ResponseStatusException outOfStock(Product p) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Insufficient stock for product " + p.getId());
+    }
+
     private String resolveCurrency(String requested, Collection<Product> products) {
         if (requested != null && !requested.isBlank()) return requested;
         for (Product p : products) {
             if (p.getCurrency() != null && !p.getCurrency().isBlank()) return p.getCurrency();
         }
-        return "RON";
+        return DEFAULT_CURRENCY;
     }
-    public List<Order> listByBrand(UUID brandId) {
-        var brandProducts = productRepository.findAllByBrandIdAndDeletedFalse(brandId);
-        if (brandProducts == null || brandProducts.isEmpty()) {
-            return List.of();
-        }
-        var productIds = brandProducts.stream()
-                .map(p -> p.getId())
-                .collect(Collectors.toSet());
-        return orderRepo.findDistinctByItemsProductIds(productIds);
+
+    private static String currencyOf(Product p) {
+        return p.getCurrency() != null && !p.getCurrency().isBlank() ? p.getCurrency() : DEFAULT_CURRENCY;
     }
+    /** One page of orders containing the brand's lines, newest first, with only those lines loaded. */
+    @Transactional(readOnly = true)
+    public List<BrandOrderSlice> listByBrand(UUID brandId, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), MAX_PAGE_SIZE));
+        List<Order> orders = orderRepo.findPageByBrand(brandId, pageable).getContent();
+        if (orders.isEmpty()) return List.of();
+
+        Map<UUID, List<OrderItem>> itemsByOrder = orderItemRepo
+                .findByBrandIdAndOrder_IdInOrderByCreatedAtAsc(brandId, orders.stream().map(Order::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(i -> i.getOrder().getId()));
+        return orders.stream()
+                .map(o -> new BrandOrderSlice(o, itemsByOrder.getOrDefault(o.getId(), List.of())))
+                .toList();
+    }
+
+    public record BrandOrderSlice(Order order, List<OrderItem> brandItems) {}
 }
@@ -0,0 +1,220 @@
+package com.spark.electronics_store.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of photo bytes kept outside the Java heap.
+ *
+ * Each entry lives in its own {@link MemorySegment} from an automatic arena: the segment is
+ * readable from any request thread, and its native memory is released once it has been evicted
+ * and the last response streaming it has finished. Closing an explicit arena on eviction would
+ * free memory under a concurrent reader.
+ *
+ * Eviction is LRU gated by a TinyLFU-style admission check: a new photo only displaces
+ * LRU victims that are requested less often than itself, so a burst of one-off images cannot
+ * flush the hot primary photos.
+ */
+@Component
+@Slf4j
+public class PhotoBytesCache {
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // access-ordered: eldest entry is the LRU victim; guarded by "this"
+    private final LinkedHashMap<UUID, MemorySegment> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final FrequencySketch sketch = new FrequencySketch(4096);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public PhotoBytesCache(@Value("${photo.cache.enabled:true}") boolean enabled,
+                           @Value("${photo.cache.max-bytes:67108864}") long maxBytes,
+                           @Value("${photo.cache.max-entry-bytes:8388608}") long maxEntryBytes,
+                           MeterRegistry registry) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+
+        Gauge.builder("photo.cache.size", this, PhotoBytesCache::currentBytes)
+                .baseUnit("bytes").description("Off-heap bytes held by the photo cache").register(registry);
+        Gauge.builder("photo.cache.entries", this, PhotoBytesCache::entryCount)
+                .description("Photos held by the photo cache").register(registry);
+        Gauge.builder("photo.cache.hit.ratio", this, PhotoBytesCache::hitRatio)
+                .description("Hits / (hits + misses) since startup").register(registry);
+        FunctionCounter.builder("photo.cache.hits", hits, AtomicLong::get).register(registry);
+        FunctionCounter.builder("photo.cache.misses", misses, AtomicLong::get).register(registry);
+        FunctionCounter.builder("photo.cache.evictions", evictions, AtomicLong::get).register(registry);
+        FunctionCounter.builder("photo.cache.rejections", rejections, AtomicLong::get)
+                .description("Photos not admitted because colder than the entries they would evict")
+                .register(registry);
+    }
+
+    public Optional<MemorySegment> get(UUID photoId) {
+        if (!enabled) return Optional.empty();
+        MemorySegment segment;
+        synchronized (this) {
+            sketch.increment(photoId);
+            segment = entries.get(photoId);
+        }
+        (segment != null ? hits : misses).incrementAndGet();
+        return Optional.ofNullable(segment);
+    }
+
+    /**
+     * Whether a photo that just missed is worth copying in: it must fit, and either there is
+     * free room or it has been asked for before (a one-off request never triggers a load).
+     */
+    public boolean shouldLoad(UUID photoId, long size) {
+        if (!enabled || size <= 0 || size > maxEntryBytes) return false;
+        synchronized (this) {
+            return currentBytes + size <= maxBytes || sketch.frequency(photoId) > 1;
+        }
+    }
+
+    /** Offer freshly loaded bytes; silently skipped if too large or colder than what it would evict. */
+    public void put(UUID photoId, byte[] bytes) {
+        if (!enabled || bytes == null || bytes.length == 0 || bytes.length > maxEntryBytes) return;
+
+        // copy before taking the lock; dropped (and reclaimed by GC) if not admitted
+        MemorySegment segment = allocate(bytes.length);
+        segment.copyFrom(MemorySegment.ofArray(bytes));
+        put(photoId, segment);
+    }
+
+    /** Offer a segment from {@link #allocate(long)} filled by the caller. */
+    public void put(UUID photoId, MemorySegment segment) {
+        long size = segment.byteSize();
+        if (!enabled || size == 0 || size > maxEntryBytes) return;
+
+        synchronized (this) {
+            if (entries.containsKey(photoId)) return;
+
+            long needed = currentBytes + size - maxBytes;
+            List<UUID> victims = new ArrayList<>();
+            if (needed > 0) {
+                int candidateFreq = sketch.frequency(photoId);
+                Iterator<Map.Entry<UUID, MemorySegment>> it = entries.entrySet().iterator();
+                while (needed > 0 && it.hasNext()) {
+                    Map.Entry<UUID, MemorySegment> victim = it.next();
+                    if (sketch.frequency(victim.getKey()) >= candidateFreq) {
+                        rejections.incrementAndGet();
+                        return;
+                    }
+                    victims.add(victim.getKey());
+                    needed -= victim.getValue().byteSize();
+                }
+            }
+            for (UUID victim : victims) {
+                currentBytes -= entries.remove(victim).byteSize();
+                evictions.incrementAndGet();
+            }
+            entries.put(photoId, segment);
+            currentBytes += size;
+        }
+    }
+
+    /** Native memory for a new entry, released by GC if it is never admitted. */
+    public MemorySegment allocate(long size) {
+        return Arena.ofAuto().allocate(size);
+    }
+
+    public synchronized void invalidate(UUID photoId) {
+        MemorySegment removed = entries.remove(photoId);
+        if (removed != null) currentBytes -= removed.byteSize();
+    }
+
+    public synchronized long currentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int entryCount() {
+        return entries.size();
+    }
+
+    public double hitRatio() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0d : (double) h / total;
+    }
+
+    /**
+     * Count-min sketch with 4-bit saturation and periodic halving, so popularity decays and
+     * yesterday's hot photo does not stay protected forever. Not thread-safe; callers hold the cache lock.
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final int[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int width) {
+            int w = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+            this.table = new int[DEPTH][w];
+            this.mask = w - 1;
+            this.sampleSize = 10 * w;
+        }
+
+        void increment(Object key) {
+            int h = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < DEPTH; i++) {
+                int idx = index(h, i);
+                if (table[i][idx] < MAX_COUNT) {
+                    table[i][idx]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int[] row : table) {
+                    for (int j = 0; j < row.length; j++) row[j] >>>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(Object key) {
+            int h = spread(key.hashCode());
+            int min = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                min = Math.min(min, table[i][index(h, i)]);
+            }
+            return min;
+        }
+
+        private int index(int h, int row) {
+            int x = h * SEEDS[row];
+            x ^= x >>> 16;
+            return x & mask;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x45d9f3b;
+            return h ^ (h >>> 16);
+        }
+    }
+}
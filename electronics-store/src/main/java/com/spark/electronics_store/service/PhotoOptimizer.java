@@ -0,0 +1,365 @@
+package com.spark.electronics_store.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Optional upload-time optimization: caps the long edge, drops EXIF/ICC/thumbnail metadata by
+ * re-encoding, recompresses JPEG at a fixed quality and turns opaque PNG screenshots into JPEG.
+ * The re-encoded result is only used when it is actually smaller (or had to be downscaled).
+ * Otherwise the metadata is still removed, losslessly: the upload is copied without its JPEG
+ * APP1-APP15 and COM segments, or without its PNG text, eXIf and tIME chunks. GIFs and anything
+ * ImageIO cannot decode are stored as uploaded.
+ */
+@Component
+@Slf4j
+public class PhotoOptimizer {
+
+    public record Optimized(byte[] bytes, String contentType, String filename, int width, int height) {}
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final Set<String> PNG_METADATA_CHUNKS = Set.of("tEXt", "zTXt", "iTXt", "eXIf", "tIME");
+
+    private final boolean enabled;
+    private final int maxLongEdge;
+    private final float jpegQuality;
+    private final boolean convertOpaquePng;
+    // decoding is CPU and heap heavy; bound it even though parts are staged on virtual threads
+    private final Semaphore permits;
+
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+
+    public PhotoOptimizer(@Value("${photo.optimize.enabled:false}") boolean enabled,
+                          @Value("${photo.optimize.max-long-edge:2048}") int maxLongEdge,
+                          @Value("${photo.optimize.jpeg-quality:0.85}") float jpegQuality,
+                          @Value("${photo.optimize.convert-opaque-png:true}") boolean convertOpaquePng,
+                          @Value("${photo.optimize.max-concurrent:0}") int maxConcurrent,
+                          MeterRegistry registry) {
+        this.enabled = enabled;
+        this.maxLongEdge = Math.max(64, maxLongEdge);
+        this.jpegQuality = Math.min(1f, Math.max(0.1f, jpegQuality));
+        this.convertOpaquePng = convertOpaquePng;
+        this.permits = new Semaphore(maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors());
+        this.bytesIn = Counter.builder("photo.optimize.bytes.in").baseUnit("bytes")
+                .description("Upload bytes seen by the optimizer").register(registry);
+        this.bytesOut = Counter.builder("photo.optimize.bytes.out").baseUnit("bytes")
+                .description("Bytes stored after optimization").register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Empty when disabled, unsupported, undecodable or left with nothing to drop; the original is stored then. */
+    public Optional<Optimized> optimize(InputStreamSource source, String filename, String contentType, long originalSize) {
+        if (!enabled) return Optional.empty();
+        boolean jpeg = MediaType.IMAGE_JPEG_VALUE.equals(contentType);
+        boolean png = MediaType.IMAGE_PNG_VALUE.equals(contentType);
+        if (!jpeg && !png) return Optional.empty();
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+        try {
+            int orientation = jpeg ? readExifOrientation(source) : 1;
+            BufferedImage image = decode(source);
+            if (image == null) return Optional.empty();
+            int srcW = image.getWidth(), srcH = image.getHeight();
+
+            image = applyOrientation(image, orientation);
+            boolean resized = Math.max(image.getWidth(), image.getHeight()) > maxLongEdge;
+            if (resized) image = downscale(image);
+
+            boolean toJpeg = jpeg || (convertOpaquePng && isOpaque(image));
+            byte[] out = toJpeg ? writeJpeg(image) : writePng(image);
+
+            bytesIn.increment(originalSize);
+            if (!resized && orientation == 1 && out.length >= originalSize) {
+                // re-encoding does not pay off, but the location and camera data must still go
+                byte[] stripped = stripMetadata(source, jpeg);
+                if (stripped == null || stripped.length >= originalSize) {
+                    bytesOut.increment(originalSize);
+                    return Optional.empty();
+                }
+                bytesOut.increment(stripped.length);
+                log.info("Stripped metadata from photo '{}': {} -> {} bytes", filename, originalSize, stripped.length);
+                return Optional.of(new Optimized(stripped, contentType, filename, image.getWidth(), image.getHeight()));
+            }
+            bytesOut.increment(out.length);
+            log.info("Optimized photo '{}': {} -> {} bytes ({}x{} -> {}x{}, {} -> {})",
+                    filename, originalSize, out.length, srcW, srcH, image.getWidth(), image.getHeight(),
+                    contentType, toJpeg ? MediaType.IMAGE_JPEG_VALUE : contentType);
+
+            String outType = toJpeg ? MediaType.IMAGE_JPEG_VALUE : MediaType.IMAGE_PNG_VALUE;
+            String outName = (png && toJpeg) ? replaceExtension(filename, "jpg") : filename;
+            return Optional.of(new Optimized(out, outType, outName, image.getWidth(), image.getHeight()));
+        } catch (IOException | RuntimeException e) {
+            log.debug("Skipping optimization of '{}': {}", filename, e.toString());
+            return Optional.empty();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // ---- decode / encode ----
+
+    private BufferedImage decode(InputStreamSource source) throws IOException {
+        try (InputStream in = source.getInputStream();
+             ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true); // metadata is dropped anyway
+                int longEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                // decimate huge sources while decoding, keeping 2x headroom for the smooth downscale
+                int step = longEdge / (2 * maxLongEdge);
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private byte[] writeJpeg(BufferedImage image) throws IOException {
+        BufferedImage rgb = image;
+        if (image.getColorModel().hasAlpha()) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            try {
+                g.drawImage(image, 0, 0, java.awt.Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        return write(writer, rgb, param);
+    }
+
+    private byte[] writePng(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        return write(writer, image, writer.getDefaultWriteParam());
+    }
+
+    private static byte[] write(ImageWriter writer, BufferedImage image, ImageWriteParam param) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param); // null metadata: nothing carried over
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // ---- lossless metadata strip ----
+
+    private static byte[] stripMetadata(InputStreamSource source, boolean jpeg) throws IOException {
+        byte[] in;
+        try (InputStream is = source.getInputStream()) {
+            in = is.readAllBytes();
+        }
+        return jpeg ? stripJpegMetadata(in) : stripPngMetadata(in);
+    }
+
+    /**
+     * Copies a JPEG without its APP1-APP15 (Exif, XMP, ICC, ...) and COM segments; everything from
+     * the start of scan on is copied as is. Null when the segment structure is not understood.
+     */
+    static byte[] stripJpegMetadata(byte[] in) {
+        if (in.length < 4 || (in[0] & 0xFF) != 0xFF || (in[1] & 0xFF) != 0xD8) return null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(in.length);
+        out.write(in, 0, 2); // SOI
+        int p = 2;
+        while (p + 4 <= in.length) {
+            if ((in[p] & 0xFF) != 0xFF) return null;
+            int marker = in[p + 1] & 0xFF;
+            if (marker == 0xFF) { // fill byte
+                p++;
+                continue;
+            }
+            if (marker == 0xDA) { // start of scan: entropy-coded data and the rest of the file
+                out.write(in, p, in.length - p);
+                return out.toByteArray();
+            }
+            int len = ((in[p + 2] & 0xFF) << 8) | (in[p + 3] & 0xFF);
+            if (len < 2 || p + 2 + len > in.length) return null;
+            boolean metadata = (marker >= 0xE1 && marker <= 0xEF) || marker == 0xFE;
+            if (!metadata) out.write(in, p, 2 + len);
+            p += 2 + len;
+        }
+        return null;
+    }
+
+    /**
+     * Copies a PNG without its text, eXIf and tIME chunks; the image chunks are copied as is, CRCs
+     * included. Null when the chunk structure is not understood.
+     */
+    static byte[] stripPngMetadata(byte[] in) {
+        if (in.length < PNG_SIGNATURE.length || !Arrays.equals(in, 0, PNG_SIGNATURE.length, PNG_SIGNATURE, 0, PNG_SIGNATURE.length)) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(in.length);
+        out.write(in, 0, PNG_SIGNATURE.length);
+        int p = PNG_SIGNATURE.length;
+        while (p + 12 <= in.length) {
+            long len = readInt(in, p, false) & 0xFFFFFFFFL;
+            if (p + 12 + len > in.length) return null;
+            int chunk = 12 + (int) len; // length, type, data, CRC
+            String type = new String(in, p + 4, 4, StandardCharsets.US_ASCII);
+            if (!PNG_METADATA_CHUNKS.contains(type)) out.write(in, p, chunk);
+            p += chunk;
+            if (type.equals("IEND")) return out.toByteArray();
+        }
+        return null;
+    }
+
+    // ---- pixel helpers ----
+
+    private BufferedImage downscale(BufferedImage src) {
+        double scale = (double) maxLongEdge / Math.max(src.getWidth(), src.getHeight());
+        int w = Math.max(1, (int) Math.round(src.getWidth() * scale));
+        int h = Math.max(1, (int) Math.round(src.getHeight() * scale));
+        int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage dst = new BufferedImage(w, h, type);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    private static boolean isOpaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) return true;
+        int w = image.getWidth();
+        int[] row = new int[w];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, w, 1, row, 0, w);
+            for (int argb : row) {
+                if ((argb >>> 24) != 0xFF) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Re-encoding drops the EXIF orientation tag, so bake it into the pixels first. */
+    static BufferedImage applyOrientation(BufferedImage src, int orientation) {
+        if (orientation < 2 || orientation > 8) return src;
+        int w = src.getWidth(), h = src.getHeight();
+        boolean swap = orientation >= 5;
+        // (m00, m10, m01, m11, m02, m12) mapping source (x, y) to the upright image
+        AffineTransform t = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);   // mirror horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);  // rotate 180
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);   // mirror vertical
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);    // transpose
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);   // rotate 90 cw
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);  // transverse
+            default -> new AffineTransform(0, -1, 1, 0, 0, w);  // 8: rotate 270 cw
+        };
+        int type = src.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage dst = new BufferedImage(swap ? h : w, swap ? w : h, type);
+        Graphics2D g = dst.createGraphics();
+        try {
+            g.drawImage(src, t, null);
+        } finally {
+            g.dispose();
+        }
+        return dst;
+    }
+
+    /** Reads tag 0x0112 from the APP1/Exif segment; 1 (normal) when absent or unreadable. */
+    static int readExifOrientation(InputStreamSource source) {
+        byte[] head;
+        try (InputStream in = source.getInputStream()) {
+            head = in.readNBytes(128 * 1024);
+        } catch (IOException e) {
+            return 1;
+        }
+        int p = 2; // skip SOI
+        while (p + 4 <= head.length && (head[p] & 0xFF) == 0xFF) {
+            int marker = head[p + 1] & 0xFF;
+            int len = ((head[p + 2] & 0xFF) << 8) | (head[p + 3] & 0xFF);
+            if (marker == 0xDA) break; // start of scan: no more metadata
+            if (marker == 0xE1 && p + 10 <= head.length
+                    && head[p + 4] == 'E' && head[p + 5] == 'x' && head[p + 6] == 'i' && head[p + 7] == 'f') {
+                return orientationFromTiff(head, p + 10, Math.min(head.length, p + 2 + len));
+            }
+            p += 2 + len;
+        }
+        return 1;
+    }
+
+    private static int orientationFromTiff(byte[] b, int tiff, int end) {
+        if (tiff + 8 > end) return 1;
+        boolean little = b[tiff] == 'I';
+        int ifd = tiff + readInt(b, tiff + 4, little);
+        if (ifd + 2 > end) return 1;
+        int entries = readShort(b, ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int e = ifd + 2 + i * 12;
+            if (e + 12 > end) return 1;
+            if (readShort(b, e, little) == 0x0112) {
+                return readShort(b, e + 8, little);
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] b, int off, boolean little) {
+        int b0 = b[off] & 0xFF, b1 = b[off + 1] & 0xFF;
+        return little ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] b, int off, boolean little) {
+        int b0 = b[off] & 0xFF, b1 = b[off + 1] & 0xFF, b2 = b[off + 2] & 0xFF, b3 = b[off + 3] & 0xFF;
+        return little ? (b3 << 24) | (b2 << 16) | (b1 << 8) | b0 : (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
+    }
+
+    private static String replaceExtension(String filename, String ext) {
+        int dot = filename.lastIndexOf('.');
+        return (dot > 0 ? filename.substring(0, dot) : filename) + "." + ext;
+    }
+}
@@ -0,0 +1,72 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.repository.ProductPhotoRepository;
+import com.spark.electronics_store.repository.projection.PhotoBackfillTarget;
+import com.spark.electronics_store.util.ContentHash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Fills width/height/dominant color/BlurHash, and the content hash used as ETag, for photos
+ * stored before those existed (and for seeded photos, which bypass the upload path). Walks ids in
+ * keyset order, one photo's bytes in memory at a time, reading each photo once for both. A photo
+ * that cannot be decoded is marked ({@code placeholder_failed_at}) and not read again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PhotoPlaceholderBackfill {
+
+    private static final int BATCH = 50;
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private final ProductPhotoRepository photoRepository;
+    private final PhotoPlaceholderGenerator placeholderGenerator;
+
+    @Scheduled(initialDelayString = "${photo.placeholder.backfill-initial-delay-ms:30000}",
+               fixedDelayString = "${photo.placeholder.backfill-delay-ms:600000}")
+    public void run() {
+        int filled = 0, failed = 0, hashed = 0;
+        UUID after = MIN_UUID;
+        List<PhotoBackfillTarget> targets;
+        while (!(targets = photoRepository.findBackfillTargets(after, Limit.of(BATCH))).isEmpty()) {
+            for (PhotoBackfillTarget t : targets) {
+                byte[] data = photoRepository.findDataById(t.id()).orElse(null);
+                if (data == null) continue;
+                if (t.missingContentHash()
+                        && photoRepository.fillContentHash(t.id(), ContentHash.sha256Hex(data), data.length) > 0) {
+                    hashed++;
+                }
+                if (t.missingPlaceholder()) {
+                    if (fillPlaceholder(t.id(), data)) filled++; else failed++;
+                }
+            }
+            after = targets.get(targets.size() - 1).id();
+        }
+        if (filled > 0 || failed > 0 || hashed > 0) {
+            log.info("Photo backfill: {} placeholders filled, {} undecodable, {} content hashes filled", filled, failed, hashed);
+        }
+    }
+
+    private boolean fillPlaceholder(UUID photoId, byte[] data) {
+        // content type only matters for EXIF orientation; sniff JPEG by its SOI marker
+        boolean jpeg = data.length > 2 && (data[0] & 0xFF) == 0xFF && (data[1] & 0xFF) == 0xD8;
+        Optional<PhotoPlaceholderGenerator.Placeholder> ph =
+                placeholderGenerator.generate(new ByteArrayResource(data), jpeg ? "image/jpeg" : null);
+        if (ph.isEmpty()) {
+            photoRepository.markPlaceholderFailed(photoId, Instant.now());
+            return false;
+        }
+        return photoRepository.updatePlaceholder(photoId, ph.get().width(), ph.get().height(),
+                ph.get().dominantColor(), ph.get().blurHash()) > 0;
+    }
+}
@@ -0,0 +1,143 @@
+package com.spark.electronics_store.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Computes what a client needs to paint a photo before its bytes arrive: display dimensions,
+ * the average ("dominant") color and a BlurHash string (~30 chars for 4x3 components).
+ * Only a subsampled thumbnail is decoded, so this is cheap even for large uploads.
+ */
+@Component
+@Slf4j
+public class PhotoPlaceholderGenerator {
+
+    public record Placeholder(int width, int height, String dominantColor, String blurHash) {}
+
+    private static final int SAMPLE_EDGE = 64;
+    private static final int COMPONENTS_X = 4;
+    private static final int COMPONENTS_Y = 3;
+
+    public Optional<Placeholder> generate(InputStreamSource source, String contentType) {
+        try {
+            int orientation = "image/jpeg".equals(contentType) ? PhotoOptimizer.readExifOrientation(source) : 1;
+            try (InputStream in = source.getInputStream();
+                 ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+                if (iis == null) return Optional.empty();
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+                if (!readers.hasNext()) return Optional.empty();
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(iis, true, true);
+                    int width = reader.getWidth(0), height = reader.getHeight(0);
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    int step = Math.max(width, height) / SAMPLE_EDGE;
+                    if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                    BufferedImage sample = PhotoOptimizer.applyOrientation(reader.read(0, param), orientation);
+                    if (orientation >= 5) {
+                        int t = width; width = height; height = t;
+                    }
+                    double[][] factors = factors(sample);
+                    return Optional.of(new Placeholder(width, height, hexColor(factors[0]), blurHash(factors)));
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("No placeholder for {} image: {}", contentType, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    // ---- BlurHash (https://github.com/woltapp/blurhash) ----
+
+    private static final String BASE83 =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private static double[][] factors(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        int[] rgb = img.getRGB(0, 0, w, h, null, 0, w);
+        double[][] factors = new double[COMPONENTS_X * COMPONENTS_Y][3];
+        for (int j = 0; j < COMPONENTS_Y; j++) {
+            for (int i = 0; i < COMPONENTS_X; i++) {
+                double norm = (i == 0 && j == 0) ? 1 : 2;
+                double r = 0, g = 0, b = 0;
+                for (int y = 0; y < h; y++) {
+                    double cy = Math.cos(Math.PI * j * y / h);
+                    for (int x = 0; x < w; x++) {
+                        double basis = Math.cos(Math.PI * i * x / w) * cy;
+                        int px = rgb[y * w + x];
+                        r += basis * srgbToLinear((px >> 16) & 0xFF);
+                        g += basis * srgbToLinear((px >> 8) & 0xFF);
+                        b += basis * srgbToLinear(px & 0xFF);
+                    }
+                }
+                double scale = norm / (w * h);
+                factors[j * COMPONENTS_X + i] = new double[]{r * scale, g * scale, b * scale};
+            }
+        }
+        return factors;
+    }
+
+    private static String blurHash(double[][] factors) {
+        StringBuilder hash = new StringBuilder();
+        encode83(hash, (COMPONENTS_X - 1) + (COMPONENTS_Y - 1) * 9, 1);
+
+        double actualMax = 0;
+        for (int k = 1; k < factors.length; k++) {
+            for (double c : factors[k]) actualMax = Math.max(actualMax, Math.abs(c));
+        }
+        int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+        double maxValue = (quantisedMax + 1) / 166.0;
+        encode83(hash, quantisedMax, 1);
+
+        double[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            int qr = quantiseAc(ac[0], maxValue), qg = quantiseAc(ac[1], maxValue), qb = quantiseAc(ac[2], maxValue);
+            encode83(hash, qr * 19 * 19 + qg * 19 + qb, 2);
+        }
+        return hash.toString();
+    }
+
+    private static int quantiseAc(double value, double maxValue) {
+        double v = value / maxValue;
+        double signPow = Math.copySign(Math.pow(Math.abs(v), 0.5), v);
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow * 9 + 9.5)));
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / (int) Math.pow(83, length - i)) % 83;
+            out.append(BASE83.charAt(digit));
+        }
+    }
+
+    private static String hexColor(double[] linear) {
+        return String.format("#%02x%02x%02x", linearToSrgb(linear[0]), linearToSrgb(linear[1]), linearToSrgb(linear[2]));
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+}
@@ -0,0 +1,276 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.CreatePhotoUploadRequest;
+import com.spark.electronics_store.dto.PhotoUploadStatus;
+import com.spark.electronics_store.dto.ProductPhotoResponse;
+import com.spark.electronics_store.repository.ProductRepository;
+import com.spark.electronics_store.util.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resumable photo uploads: the client opens a session with the total size, PUTs the bytes in
+ * chunks at explicit offsets, and completes the session. Chunks are appended to a file on local
+ * disk and hashed as they arrive, so neither the request nor the photo is buffered in the heap,
+ * and after a dropped connection the client resumes from the reported offset.
+ * Completion feeds the file into {@link ProductPhotoService#upload} like any multipart part.
+ *
+ * A photo is capped at the multipart per-file limit, so this path accepts nothing the multipart
+ * one would refuse. Each brand may hold a bounded number of open sessions and of staged bytes
+ * (declared sizes, reserved when the session opens), so abandoned sessions cannot fill the disk
+ * before they expire.
+ *
+ * Sessions live in memory; partial files left behind by a restart are removed at startup.
+ */
+@Service
+@Slf4j
+public class PhotoUploadSessionService {
+
+    private static final String PART_SUFFIX = ".part";
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final ProductRepository productRepository;
+    private final ProductPhotoService photoService;
+    private final Path directory;
+    private final long maxBytes;
+    private final int maxSessionsPerBrand;
+    private final long maxStagedBytesPerBrand;
+    private final Duration ttl;
+
+    private final ConcurrentHashMap<UUID, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Staged> stagedByBrand = new ConcurrentHashMap<>();
+
+    /** Open sessions and their declared bytes for one brand. */
+    private record Staged(int sessions, long bytes) { }
+
+    public PhotoUploadSessionService(ProductRepository productRepository,
+                                     ProductPhotoService photoService,
+                                     @Value("${photo.upload.session-dir:${java.io.tmpdir}/photo-uploads}") String directory,
+                                     @Value("${photo.upload.max-bytes:${spring.servlet.multipart.max-file-size:8MB}}") DataSize maxBytes,
+                                     @Value("${photo.upload.max-sessions-per-brand:16}") int maxSessionsPerBrand,
+                                     @Value("${photo.upload.max-staged-bytes-per-brand:64MB}") DataSize maxStagedBytesPerBrand,
+                                     @Value("${photo.upload.session-ttl-ms:86400000}") long ttlMs) throws IOException {
+        this.productRepository = productRepository;
+        this.photoService = photoService;
+        this.directory = Files.createDirectories(Path.of(directory));
+        this.maxBytes = maxBytes.toBytes();
+        this.maxSessionsPerBrand = Math.max(1, maxSessionsPerBrand);
+        this.maxStagedBytesPerBrand = maxStagedBytesPerBrand.toBytes();
+        this.ttl = Duration.ofMillis(ttlMs);
+        removeOrphans();
+    }
+
+    private static final class Session {
+        final UUID id;
+        final UUID brandId;
+        final UUID productId;
+        final String filename;
+        final String contentType;
+        final long size;
+        final Path file;
+        final MessageDigest digest = ContentHash.newSha256();
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long offset;            // written under lock, readable without it
+        volatile Instant lastActivity = Instant.now();
+
+        Session(UUID id, UUID brandId, UUID productId, String filename, String contentType, long size, Path file) {
+            this.id = id;
+            this.brandId = brandId;
+            this.productId = productId;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.size = size;
+            this.file = file;
+        }
+
+        PhotoUploadStatus status() {
+            return new PhotoUploadStatus(id, offset, size);
+        }
+    }
+
+    // ---- helpers ----
+    private Session require(UUID brandId, UUID productId, UUID uploadId) {
+        Session s = sessions.get(uploadId);
+        if (s == null || !s.brandId.equals(brandId) || !s.productId.equals(productId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Upload not found");
+        }
+        return s;
+    }
+
+    private void lock(Session s) {
+        if (!s.lock.tryLock()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Another request is writing to this upload");
+        }
+    }
+
+    private void discard(Session s) {
+        if (sessions.remove(s.id, s)) release(s);
+        try {
+            Files.deleteIfExists(s.file);
+        } catch (IOException e) {
+            log.warn("Could not delete upload file {}: {}", s.file, e.toString());
+        }
+    }
+
+    /** Reserves a session slot and its declared size against the brand's quota, or refuses with 429. */
+    private void reserve(UUID brandId, long size) {
+        stagedByBrand.compute(brandId, (id, cur) -> {
+            Staged now = cur == null ? new Staged(0, 0) : cur;
+            if (now.sessions() >= maxSessionsPerBrand) {
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many open uploads (" + maxSessionsPerBrand + "); complete or abort some first");
+            }
+            if (now.bytes() + size > maxStagedBytesPerBrand) {
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Open uploads would exceed " + maxStagedBytesPerBrand + " bytes; complete or abort some first");
+            }
+            return new Staged(now.sessions() + 1, now.bytes() + size);
+        });
+    }
+
+    private void release(Session s) {
+        stagedByBrand.computeIfPresent(s.brandId, (id, cur) ->
+                cur.sessions() <= 1 ? null : new Staged(cur.sessions() - 1, cur.bytes() - s.size));
+    }
+
+    private void removeOrphans() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + PART_SUFFIX)) {
+            for (Path f : files) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    // ---- API used by controller ----
+    public PhotoUploadStatus create(UUID brandId, UUID productId, CreatePhotoUploadRequest req) {
+        if (req.size() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be positive");
+        }
+        if (req.size() > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Photo exceeds " + maxBytes + " bytes");
+        }
+        productRepository.findById(productId)
+                .filter(p -> p.getBrand().getId().equals(brandId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+
+        reserve(brandId, req.size());
+        UUID id = UUID.randomUUID();
+        Path file = directory.resolve(id + PART_SUFFIX);
+        Session s = new Session(id, brandId, productId,
+                Objects.requireNonNullElse(req.filename(), "upload"), req.contentType(), req.size(), file);
+        sessions.put(id, s);
+        try {
+            Files.createFile(file);
+        } catch (IOException e) {
+            discard(s);
+            throw new UncheckedIOException(e);
+        }
+        return s.status();
+    }
+
+    public PhotoUploadStatus status(UUID brandId, UUID productId, UUID uploadId) {
+        // no lock: a client resuming after a dropped connection may ask while the old chunk is still draining
+        return require(brandId, productId, uploadId).status();
+    }
+
+    /**
+     * Appends one chunk that must start at the current offset. Bytes received before a dropped
+     * connection are kept (and already hashed), so the client can resume from {@link #status}.
+     */
+    public PhotoUploadStatus append(UUID brandId, UUID productId, UUID uploadId, long offset, InputStream body) {
+        Session s = require(brandId, productId, uploadId);
+        lock(s);
+        try {
+            if (offset != s.offset) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Expected offset " + s.offset);
+            }
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            try (FileChannel out = FileChannel.open(s.file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                int n;
+                while ((n = body.read(buffer)) != -1) {
+                    if (s.offset + n > s.size) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk runs past declared size " + s.size);
+                    }
+                    ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+                    while (bb.hasRemaining()) out.write(bb);
+                    s.digest.update(buffer, 0, n);
+                    s.offset += n;
+                }
+            } catch (IOException e) {
+                log.debug("Upload {} chunk interrupted at offset {}: {}", s.id, s.offset, e.toString());
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chunk interrupted at offset " + s.offset, e);
+            }
+            s.lastActivity = Instant.now();
+            return s.status();
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    public ProductPhotoResponse complete(UUID brandId, UUID productId, UUID uploadId) {
+        Session s = require(brandId, productId, uploadId);
+        lock(s);
+        try {
+            if (s.offset != s.size) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Upload incomplete: " + s.offset + " of " + s.size + " bytes received");
+            }
+            SessionUploadFile file = new SessionUploadFile(s.file, s.filename, s.contentType, s.size,
+                    ContentHash.hex(s.digest.digest()));
+            try {
+                return photoService.upload(brandId, productId, file);
+            } finally {
+                discard(s);
+            }
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    public void abort(UUID brandId, UUID productId, UUID uploadId) {
+        Session s = require(brandId, productId, uploadId);
+        lock(s);
+        try {
+            discard(s);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${photo.upload.session-sweep-ms:600000}")
+    public void expireStale() {
+        Instant cutoff = Instant.now().minus(ttl);
+        for (Session s : sessions.values()) {
+            if (s.lastActivity.isBefore(cutoff) && s.lock.tryLock()) {
+                try {
+                    discard(s);
+                    log.debug("Expired idle upload {}", s.id);
+                } finally {
+                    s.lock.unlock();
+                }
+            }
+        }
+    }
+}
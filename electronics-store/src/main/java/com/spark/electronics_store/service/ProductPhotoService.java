@@ -7,15 +7,37 @@ import com.spark.electronics_store.model.ProductPhoto;
 import com.spark.electronics_store.repository.BrandRepository;
 import com.spark.electronics_store.repository.ProductPhotoRepository;
 import com.spark.electronics_store.repository.ProductRepository;
+import com.spark.electronics_store.repository.projection.ProductPhotoMeta;
+import com.spark.electronics_store.util.ContentHash;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +47,10 @@ public class ProductPhotoService {
     private final BrandRepository brandRepository;
     private final ProductRepository productRepository;
     private final ProductPhotoRepository photoRepository;
+    private final PhotoBytesCache photoBytesCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final PhotoOptimizer photoOptimizer;
+    private final PhotoPlaceholderGenerator placeholderGenerator;
 
     // ---- helpers ----
     private Product resolveProduct(UUID brandId, UUID productId) {
@@ -50,53 +76,153 @@ public class ProductPhotoService {
                 p.getContentType(),
                 Optional.ofNullable(p.getPosition()).orElse(0),
                 p.isPrimary(),
-                photoUrl(brandId, productId, p.getId())
+                photoUrl(brandId, productId, p.getId()),
+                p.getWidth(),
+                p.getHeight(),
+                p.getDominantColor(),
+                p.getBlurHash()
         );
     }
 
-    // ---- API used by controller ----
-    @Transactional
-    public ProductPhotoResponse upload(UUID brandId, UUID productId, MultipartFile file) {
-        Product product = resolveProduct(brandId, productId);
-
-        int nextPos = photoRepository.countByProduct_Id(productId);
-        try {
-            // ✅ Detect content type properly
-            String contentType = file.getContentType();
-            if (contentType == null || contentType.isBlank() || contentType.equals("application/octet-stream")) {
-                String filename = file.getOriginalFilename();
-                if (filename != null) {
-                    String lower = filename.toLowerCase();
-                    if (lower.endsWith(".png")) {
-                        contentType = "image/png";
-                    } else if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
-                        contentType = "image/jpeg";
-                    } else if (lower.endsWith(".gif")) {
-                        contentType = "image/gif";
-                    } else {
-                        contentType = "image/png"; // default safe fallback
-                    }
+    private static String resolveContentType(MultipartFile file) {
+        // ✅ Detect content type properly
+        String contentType = file.getContentType();
+        if (contentType == null || contentType.isBlank() || contentType.equals("application/octet-stream")) {
+            String filename = file.getOriginalFilename();
+            if (filename != null) {
+                String lower = filename.toLowerCase();
+                if (lower.endsWith(".png")) {
+                    contentType = "image/png";
+                } else if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) {
+                    contentType = "image/jpeg";
+                } else if (lower.endsWith(".gif")) {
+                    contentType = "image/gif";
                 } else {
-                    contentType = "image/png"; // fallback if no filename
+                    contentType = "image/png"; // default safe fallback
                 }
+            } else {
+                contentType = "image/png"; // fallback if no filename
             }
+        }
+        return contentType;
+    }
+
+    /** An uploaded part that has been hashed and measured but not yet written. */
+    private record StagedPhoto(UUID id, String filename, String contentType,
+                               InputStreamSource body, long size, String contentHash,
+                               PhotoPlaceholderGenerator.Placeholder placeholder) {}
 
-            ProductPhoto entity = ProductPhoto.builder()
-                    .id(UUID.randomUUID())
-                    .product(product)
-                    .filename(Objects.requireNonNullElse(file.getOriginalFilename(), "upload"))
-                    .contentType(contentType)        // ✅ correct MIME type
-                    .data(file.getBytes())           // ✅ real image bytes
-                    .position(nextPos)
-                    .primary(nextPos == 0)
-                    .build();
+    // optionally optimizes the image, then streams the stored bytes through SHA-256 without buffering them;
+    // multipart parts are re-readable, so the insert can stream the part again
+    private StagedPhoto stage(MultipartFile file) throws IOException {
+        String filename = Objects.requireNonNullElse(file.getOriginalFilename(), "upload");
+        String contentType = resolveContentType(file);
+        InputStreamSource body = file;
 
-            ProductPhoto saved = photoRepository.save(entity);
-            return toDto(saved, brandId, productId);
+        Optional<PhotoOptimizer.Optimized> optimized = photoOptimizer.optimize(file, filename, contentType, file.getSize());
+        if (optimized.isPresent()) {
+            body = new ByteArrayResource(optimized.get().bytes());
+            filename = optimized.get().filename();
+            contentType = optimized.get().contentType();
+        }
 
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unable to read uploaded file", e);
+        if (optimized.isEmpty() && file instanceof SessionUploadFile upload) {
+            // resumable uploads were hashed chunk by chunk as they arrived
+            PhotoPlaceholderGenerator.Placeholder placeholder =
+                    placeholderGenerator.generate(body, contentType).orElse(null);
+            return new StagedPhoto(UUID.randomUUID(), filename, contentType, body, upload.getSize(),
+                    upload.contentHash(), placeholder);
         }
+
+        MessageDigest sha256 = ContentHash.newSha256();
+        long size;
+        try (InputStream in = new DigestInputStream(body.getInputStream(), sha256)) {
+            size = in.transferTo(OutputStream.nullOutputStream());
+        }
+        PhotoPlaceholderGenerator.Placeholder placeholder =
+                placeholderGenerator.generate(body, contentType).orElse(null);
+        return new StagedPhoto(UUID.randomUUID(), filename, contentType, body, size,
+                ContentHash.hex(sha256.digest()), placeholder);
+    }
+
+    private List<StagedPhoto> stageAll(List<MultipartFile> files) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<StagedPhoto>> futures = new ArrayList<>(files.size());
+            for (MultipartFile f : files) {
+                futures.add(executor.submit(() -> stage(f)));
+            }
+            List<StagedPhoto> staged = new ArrayList<>(futures.size());
+            for (Future<StagedPhoto> f : futures) {
+                staged.add(f.get());
+            }
+            return staged;
+        } catch (ExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unable to read uploaded file", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Upload interrupted", e);
+        }
+    }
+
+    private static final String INSERT_PHOTO_SQL = """
+            insert into product_photos
+                (id, product_id, filename, content_type, data, content_hash, size_bytes,
+                 width, height, dominant_color, blur_hash,
+                 position, is_primary, created_at, updated_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    // one JDBC batch; bytes go from the part's stream straight into the bytea parameter
+    private void insertBatch(UUID productId, List<StagedPhoto> staged, int basePosition) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<InputStream> opened = new ArrayList<>(staged.size());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_PHOTO_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    StagedPhoto p = staged.get(i);
+                    InputStream in;
+                    try {
+                        in = p.body().getInputStream();
+                    } catch (IOException e) {
+                        throw new SQLException("Unable to reopen uploaded file " + p.filename(), e);
+                    }
+                    opened.add(in);
+                    int position = basePosition + i;
+                    ps.setObject(1, p.id());
+                    ps.setObject(2, productId);
+                    ps.setString(3, p.filename());
+                    ps.setString(4, p.contentType());
+                    ps.setBinaryStream(5, in, p.size());
+                    ps.setString(6, p.contentHash());
+                    ps.setLong(7, p.size());
+                    PhotoPlaceholderGenerator.Placeholder ph = p.placeholder();
+                    ps.setObject(8, ph != null ? ph.width() : null, Types.INTEGER);
+                    ps.setObject(9, ph != null ? ph.height() : null, Types.INTEGER);
+                    ps.setString(10, ph != null ? ph.dominantColor() : null);
+                    ps.setString(11, ph != null ? ph.blurHash() : null);
+                    ps.setInt(12, position);
+                    ps.setBoolean(13, position == 0);
+                    ps.setObject(14, now);
+                    ps.setObject(15, now);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return staged.size();
+                }
+            });
+        } finally {
+            for (InputStream in : opened) {
+                try { in.close(); } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    // ---- API used by controller ----
+    @Transactional
+    public ProductPhotoResponse upload(UUID brandId, UUID productId, MultipartFile file) {
+        return addPhotos(brandId, productId, List.of(file)).get(0);
     }
 
 
@@ -120,58 +246,121 @@ public class ProductPhotoService {
         return photo;
     }
 
+    // public byte serving: one ownership-checked query, no blob
     @Transactional
-    public void delete(UUID brandId, UUID productId, UUID photoId) {
-        ProductPhoto photo = getEntity(brandId, productId, photoId);
-        photoRepository.delete(photo);
+    public ProductPhotoMeta getMeta(UUID brandId, UUID productId, UUID photoId) {
+        return photoRepository.findMeta(brandId, productId, photoId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Photo not found"));
+    }
+
+    @Transactional
+    public byte[] getData(UUID photoId) {
+        return photoRepository.findDataById(photoId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Photo not found"));
+    }
+
+    // slice size for streaming reads from Postgres; most optimized photos fit in one slice
+    private static final int READ_CHUNK_BYTES = 256 * 1024;
+
+    // not @Transactional on purpose: a cache hit should not borrow a DB connection, and a miss
+    // borrows one per slice instead of holding one for the whole (client-paced) response. That
+    // only holds because the byte-serving routes run without open-in-view (see OpenInViewConfig).
+    public Resource getDataResource(UUID brandId, UUID productId, ProductPhotoMeta meta) {
+        UUID photoId = meta.id();
+        Optional<MemorySegment> cached = photoBytesCache.get(photoId);
+        if (cached.isPresent()) {
+            return new MemorySegmentResource(cached.get(), "cached photo " + photoId);
+        }
+        Long size = meta.sizeBytes();
+        if (size == null) {
+            // rows written before sizes were recorded
+            byte[] data = getData(photoId);
+            photoBytesCache.put(photoId, data);
+            return new ByteArrayResource(data);
+        }
+        if (photoBytesCache.shouldLoad(photoId, size)) {
+            MemorySegment segment = readIntoSegment(brandId, productId, photoId, size);
+            photoBytesCache.put(photoId, segment);
+            return new MemorySegmentResource(segment, "loaded photo " + photoId);
+        }
+        return new ChunkedPhotoResource(photoId, size, READ_CHUNK_BYTES,
+                (id, offset, length) -> photoRepository.readChunk(brandId, productId, id, offset, length));
+    }
 
-        // re-pack positions (optional)
-        List<ProductPhoto> remaining = photoRepository.findByProduct_IdOrderByPositionAsc(productId);
-        for (int i = 0; i < remaining.size(); i++) {
-            remaining.get(i).setPosition(i);
+    private MemorySegment readIntoSegment(UUID brandId, UUID productId, UUID photoId, long size) {
+        MemorySegment segment = photoBytesCache.allocate(size);
+        for (long offset = 0; offset < size; ) {
+            int length = (int) Math.min(READ_CHUNK_BYTES, size - offset);
+            byte[] chunk = photoRepository.readChunk(brandId, productId, photoId, offset, length);
+            if (chunk == null || chunk.length == 0) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Photo not found");
+            }
+            MemorySegment.copy(chunk, 0, segment, ValueLayout.JAVA_BYTE, offset, chunk.length);
+            offset += chunk.length;
         }
-        photoRepository.saveAll(remaining);
+        return segment;
+    }
 
-        // ensure one primary remains (optional)
-        if (remaining.stream().noneMatch(ProductPhoto::isPrimary) && !remaining.isEmpty()) {
-            remaining.get(0).setPrimary(true);
-            photoRepository.save(remaining.get(0));
+    @Transactional
+    public void delete(UUID brandId, UUID productId, UUID photoId) {
+        if (photoRepository.deleteOwned(brandId, productId, photoId) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Photo not found");
         }
+        photoBytesCache.invalidate(photoId);
+
+        // re-pack positions and keep one primary, in a single statement
+        photoRepository.compactPositions(productId);
     }
 
     @Transactional
     public void setPrimary(UUID brandId, UUID productId, UUID photoId) {
-        ProductPhoto target = getEntity(brandId, productId, photoId);
-        List<ProductPhoto> all = photoRepository.findByProduct_IdOrderByPositionAsc(productId);
-        for (ProductPhoto p : all) {
-            p.setPrimary(p.getId().equals(target.getId()));
+        if (photoRepository.setPrimaryOwned(brandId, productId, photoId) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Photo not found");
         }
-        photoRepository.saveAll(all);
     }
 
     @Transactional
     public void reorderExact(UUID brandId, UUID productId, List<UUID> orderedIds) {
-        List<ProductPhoto> all = photoRepository.findByProduct_IdOrderByPositionAsc(productId);
-
-        if (orderedIds == null || orderedIds.size() != all.size()
-                || !new HashSet<>(orderedIds).equals(all.stream().map(ProductPhoto::getId).collect(Collectors.toSet()))) {
+        if (orderedIds == null || orderedIds.isEmpty()
+                || new HashSet<>(orderedIds).size() != orderedIds.size()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Reorder list must contain exactly all photo IDs");
         }
 
-        Map<UUID, ProductPhoto> byId = all.stream().collect(Collectors.toMap(ProductPhoto::getId, p -> p));
-        for (int i = 0; i < orderedIds.size(); i++) {
-            ProductPhoto p = byId.get(orderedIds.get(i));
-            p.setPosition(i);
+        int updated = photoRepository.reorderOwned(brandId, productId, orderedIds, orderedIds.size());
+        if (updated != orderedIds.size()) {
+            // runtime exception rolls back any partial update
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Reorder list must contain exactly all photo IDs");
         }
-        photoRepository.saveAll(all);
     }
 
-    // used by ProductService when initially creating a product
+    // used by ProductService when initially creating a product, and by single uploads
     @Transactional
-    public void addPhotos(UUID brandId, UUID productId, List<MultipartFile> files) {
-        if (files == null) return;
-        for (MultipartFile f : files) {
-            upload(brandId, productId, f);
+    public List<ProductPhotoResponse> addPhotos(UUID brandId, UUID productId, List<MultipartFile> files) {
+        if (files == null) return List.of();
+        List<MultipartFile> parts = files.stream().filter(Objects::nonNull).toList();
+        if (parts.isEmpty()) return List.of();
+
+        resolveProduct(brandId, productId);
+        List<StagedPhoto> staged = stageAll(parts);
+
+        // positions for the whole request come from one query instead of a count per file
+        int basePosition = photoRepository.nextPosition(productId);
+        // the product row may still be pending in the persistence context (create path)
+        productRepository.flush();
+        insertBatch(productId, staged, basePosition);
+
+        List<ProductPhotoResponse> out = new ArrayList<>(staged.size());
+        for (int i = 0; i < staged.size(); i++) {
+            StagedPhoto p = staged.get(i);
+            PhotoPlaceholderGenerator.Placeholder ph = p.placeholder();
+            int position = basePosition + i;
+            out.add(new ProductPhotoResponse(p.id(), p.filename(), p.contentType(),
+                    position, position == 0, photoUrl(brandId, productId, p.id()),
+                    ph != null ? ph.width() : null,
+                    ph != null ? ph.height() : null,
+                    ph != null ? ph.dominantColor() : null,
+                    ph != null ? ph.blurHash() : null));
         }
+        return out;
     }
 }
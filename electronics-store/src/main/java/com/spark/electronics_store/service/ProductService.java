@@ -11,6 +11,7 @@ import com.spark.electronics_store.model.ProductCategory;
 import com.spark.electronics_store.model.ProductStatus;
 import com.spark.electronics_store.repository.BrandRepository;
 import com.spark.electronics_store.repository.ProductRepository;
+import com.spark.electronics_store.util.Money;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -38,6 +39,7 @@ public class ProductService {
     private final BrandRepository brandRepository;
     private final ProductRepository productRepository;
     private final ProductPhotoService photoService;
+    private final StockGate stockGate;
 
     private ProductResponse toResponse(Product p) {
         List<ProductPhotoResponse> photoDtos = new ArrayList<>();
@@ -51,7 +53,11 @@ public class ProductService {
                         ph.getContentType(),
                         ph.getPosition() == null ? 0 : ph.getPosition(),
                         ph.isPrimary(),
-                        url
+                        url,
+                        ph.getWidth(),
+                        ph.getHeight(),
+                        ph.getDominantColor(),
+                        ph.getBlurHash()
                 ));
             }
             photoDtos.sort(Comparator.comparingInt(ProductPhotoResponse::position));
@@ -62,14 +68,23 @@ public class ProductService {
                 p.getName(),
                 p.getSlug(),
                 p.getDescription(),
-                p.getPrice(),
+                Money.toDecimal(p.getPriceMinor(), p.getCurrency()),
                 p.getCurrency(),
                 p.getCategory(),
                 p.getStatus(),
+                p.getStock(),
                 photoDtos
         );
     }
 
+    private static long parsePrice(String price, String currency) {
+        try {
+            return Money.parseMinor(price, currency);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid price: " + price);
+        }
+    }
+
     @Transactional
     public ProductResponse create(UUID brandId, CreateProductRequest req, MultipartFile[] photos) {
         Brand brand = brandRepository.findById(brandId)
@@ -81,9 +96,10 @@ public class ProductService {
                 .name(req.name())
                 .slug(req.slug())
                 .description(req.description())
-                .price(req.price() != null ? new BigDecimal(req.price()) : null)
+                .priceMinor(req.price() != null ? parsePrice(req.price(), req.currency()) : null)
                 .currency(req.currency())
                 .status(ProductStatus.ACTIVE)
+                .stock(req.stock())
                 .deleted(false)
                 .build();
 
@@ -110,10 +126,20 @@ public class ProductService {
         if (req.name() != null) existing.setName(req.name());
         if (req.slug() != null) existing.setSlug(req.slug());
         if (req.description() != null) existing.setDescription(req.description());
-        if (req.price() != null) existing.setPrice(new BigDecimal(req.price()));
-        if (req.currency() != null) existing.setCurrency(req.currency());
+        if (req.currency() != null && !req.currency().equalsIgnoreCase(Objects.toString(existing.getCurrency(), ""))) {
+            // stored minor units belong to the old currency (1299.99 RON is 129999; as JPY that reads 129999)
+            if (existing.getPriceMinor() != null && req.price() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Changing currency requires a price");
+            }
+            existing.setCurrency(req.currency());
+        }
+        if (req.price() != null) existing.setPriceMinor(parsePrice(req.price(), existing.getCurrency()));
         if (req.status() != null) existing.setStatus(req.status());
         if (req.category() != null) existing.setCategory(req.category());
+        if (req.stock() != null) {
+            existing.setStock(req.stock());
+            stockGate.invalidateAfterCommit(productId); // restock/adjust: re-seed the checkout pre-check
+        }
 
         existing = productRepository.save(existing);
 
@@ -157,24 +183,28 @@ public class ProductService {
 
     @Transactional
     public List<ProductResponse> search(String query, String category, String minPrice, String maxPrice,
-                                        int page, int size) {
+                                        String currency, int page, int size) {
 
         ProductCategory cat = null;
         if (category != null && !category.isBlank()) {
             try { cat = ProductCategory.valueOf(category.trim().toUpperCase()); } catch (IllegalArgumentException ignored) {}
         }
 
+        // bounds are decimals in each product's own currency, or in the one requested
         BigDecimal min = null, max = null;
         try { if (minPrice != null && !minPrice.isBlank()) min = new BigDecimal(minPrice.trim()); } catch (NumberFormatException ignored) {}
         try { if (maxPrice != null && !maxPrice.isBlank()) max = new BigDecimal(maxPrice.trim()); } catch (NumberFormatException ignored) {}
+        String cur = currency != null && !currency.isBlank() ? currency.trim().toUpperCase() : null;
+        Collection<String> currencies = min == null && max == null ? List.of()
+                : cur != null ? List.of(cur) : productRepository.findDistinctCurrencies();
 
         Specification<Product> spec = Specification.allOf(
                 notDeleted(),
                 statusActive(),
                 queryLike(query),
                 categoryEq(cat),
-                priceGte(min),
-                priceLte(max)
+                currencyEq(cur),
+                priceBetween(min, max, currencies)
         );
 
         Pageable pageable = PageRequest.of(
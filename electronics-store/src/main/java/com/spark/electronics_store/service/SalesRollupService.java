@@ -0,0 +1,113 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.BrandAnalyticsResponse;
+import com.spark.electronics_store.model.Order;
+import com.spark.electronics_store.model.OrderItem;
+import com.spark.electronics_store.repository.BrandProductSalesRepository;
+import com.spark.electronics_store.repository.BrandSalesRepository;
+import com.spark.electronics_store.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Keeps the brand × day and brand × day × product sales rollups current. Each placed order is
+ * folded in with upserts inside the order's own transaction, so the rollups never disagree with
+ * the orders table, and analytics reads cost O(days × products) rows instead of O(orders).
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+
+    private static final int MAX_RANGE_DAYS = 366;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BrandSalesRepository brandSalesRepository;
+    private final BrandProductSalesRepository productSalesRepository;
+
+    private static final String UPSERT_BRAND_DAY = """
+            insert into brand_daily_sales (brand_id, sales_day, currency, orders, units, revenue_minor)
+            values (?, ?, ?, 1, ?, ?)
+            on conflict (brand_id, sales_day, currency) do update
+            set orders  = brand_daily_sales.orders + 1,
+                units   = brand_daily_sales.units + excluded.units,
+                revenue_minor = brand_daily_sales.revenue_minor + excluded.revenue_minor
+            """;
+
+    private static final String UPSERT_PRODUCT_DAY = """
+            insert into brand_daily_product_sales
+                (brand_id, sales_day, product_id, currency, product_name, orders, units, revenue_minor)
+            values (?, ?, ?, ?, ?, 1, ?, ?)
+            on conflict (brand_id, sales_day, product_id, currency) do update
+            set product_name = excluded.product_name,
+                orders  = brand_daily_product_sales.orders + 1,
+                units   = brand_daily_product_sales.units + excluded.units,
+                revenue_minor = brand_daily_product_sales.revenue_minor + excluded.revenue_minor
+            """;
+
+    private static final class Totals {
+        String productName;
+        long units;
+        long revenue; // minor units
+
+        void add(OrderItem line) {
+            long qty = line.getQty() == null ? 1 : line.getQty();
+            units += qty;
+            revenue = Math.addExact(revenue, Math.multiplyExact(line.getUnitPriceMinor(), qty));
+            productName = line.getProductName();
+        }
+    }
+
+    /** Folds a just-built order into the rollups for {@code day}; must join the order's transaction. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Order order, LocalDate day) {
+        // sorted keys: concurrent orders touch shared rows in the same order, so they queue instead of deadlocking
+        SortedMap<UUID, Totals> byBrand = new TreeMap<>();
+        SortedMap<UUID, SortedMap<UUID, Totals>> byProduct = new TreeMap<>();
+        for (OrderItem line : order.getItems()) {
+            byBrand.computeIfAbsent(line.getBrandId(), k -> new Totals()).add(line);
+            byProduct.computeIfAbsent(line.getBrandId(), k -> new TreeMap<>())
+                    .computeIfAbsent(line.getProductId(), k -> new Totals()).add(line);
+        }
+
+        String currency = order.getCurrency();
+        List<Object[]> brandRows = new ArrayList<>(byBrand.size());
+        byBrand.forEach((brandId, t) -> brandRows.add(new Object[]{brandId, day, currency, t.units, t.revenue}));
+        List<Object[]> productRows = new ArrayList<>();
+        byProduct.forEach((brandId, products) -> products.forEach((productId, t) ->
+                productRows.add(new Object[]{brandId, day, productId, currency, t.productName, t.units, t.revenue})));
+
+        jdbcTemplate.batchUpdate(UPSERT_BRAND_DAY, brandRows);
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT_DAY, productRows);
+    }
+
+    @Transactional(readOnly = true)
+    public BrandAnalyticsResponse analytics(UUID brandId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Range is limited to " + MAX_RANGE_DAYS + " days");
+        }
+        List<BrandAnalyticsResponse.Day> days = brandSalesRepository
+                .findByIdBrandIdAndIdDayBetweenOrderByIdDayAscIdCurrencyAsc(brandId, from, to).stream()
+                .map(s -> new BrandAnalyticsResponse.Day(s.getId().getDay(), s.getId().getCurrency(),
+                        s.getOrders(), s.getUnits(), Money.toDecimal(s.getRevenueMinor(), s.getId().getCurrency())))
+                .toList();
+        List<BrandAnalyticsResponse.ProductDay> products = productSalesRepository
+                .findByIdBrandIdAndIdDayBetweenOrderByIdDayAscIdProductIdAsc(brandId, from, to).stream()
+                .map(s -> new BrandAnalyticsResponse.ProductDay(s.getId().getDay(), s.getId().getProductId(),
+                        s.getProductName(), s.getId().getCurrency(), s.getOrders(), s.getUnits(),
+                        Money.toDecimal(s.getRevenueMinor(), s.getId().getCurrency())))
+                .toList();
+        return new BrandAnalyticsResponse(brandId, from, to, days, products);
+    }
+}
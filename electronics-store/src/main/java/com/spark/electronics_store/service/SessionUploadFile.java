@@ -0,0 +1,76 @@
+package com.spark.electronics_store.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A finished resumable upload presented as a {@link MultipartFile}, so it goes through the same
+ * persistence path as a multipart part. The bytes stay on disk and are re-read as streams.
+ * The SHA-256 was computed while the chunks arrived.
+ */
+final class SessionUploadFile implements MultipartFile {
+
+    private final Path path;
+    private final String filename;
+    private final String contentType;
+    private final long size;
+    private final String contentHash;
+
+    SessionUploadFile(Path path, String filename, String contentType, long size, String contentHash) {
+        this.path = path;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.contentHash = contentHash;
+    }
+
+    String contentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return filename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
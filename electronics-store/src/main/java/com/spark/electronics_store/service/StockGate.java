@@ -0,0 +1,147 @@
+package com.spark.electronics_store.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Optional in-memory pre-check in front of the stock UPDATE at checkout. Each tracked product
+ * gets an approximate "units left" budget split over a few stripes, so concurrent buyers of a
+ * hot SKU decrement different counters instead of all spinning on one. Once the budget is gone,
+ * buyers are turned away here and never queue on the product's row lock.
+ *
+ * The database stays the authority: the gate only rejects when it is sure (no units left in any
+ * stripe); anything it lets through is still checked by the conditional UPDATE, and units taken
+ * by an order that then rolls back are handed back.
+ */
+@Component
+public class StockGate {
+
+    private final boolean enabled;
+    private final int stripes;
+    private final ConcurrentHashMap<UUID, AtomicInteger[]> budgets = new ConcurrentHashMap<>();
+    // holds taken inside releaseIfFails on this thread, handed back if that work throws
+    private final ThreadLocal<List<Hold>> scopeHolds = new ThreadLocal<>();
+
+    public StockGate(@Value("${inventory.precheck.enabled:true}") boolean enabled,
+                     @Value("${inventory.precheck.stripes:8}") int stripes) {
+        this.enabled = enabled;
+        this.stripes = Math.max(1, stripes);
+    }
+
+    /** A units-taken receipt; {@link #release()} gives them back. */
+    public interface Hold {
+        void release();
+    }
+
+    private static final Hold NONE = () -> {};
+
+    /**
+     * Takes {@code qty} units of the product's budget, seeding it from {@code currentStock} on
+     * first use. Returns null when both the budget and {@code currentStock} say the units are gone.
+     */
+    public Hold tryTake(UUID productId, int qty, IntSupplier currentStock) {
+        if (!enabled) return NONE;
+        AtomicInteger[] cells = budgets.computeIfAbsent(productId, id -> split(currentStock.getAsInt()));
+
+        int start = ThreadLocalRandom.current().nextInt(cells.length);
+        for (int i = 0; i < cells.length; i++) {
+            AtomicInteger cell = cells[(start + i) % cells.length];
+            int left;
+            while ((left = cell.get()) >= qty) {
+                if (cell.compareAndSet(left, left - qty)) {
+                    return () -> cell.addAndGet(qty);
+                }
+            }
+        }
+        // no single stripe can cover qty; only reject if they cannot together either
+        int total = 0;
+        for (AtomicInteger cell : cells) total += Math.max(0, cell.get());
+        if (total >= qty) return NONE;
+        // the caller's own read disagrees (restocked elsewhere, e.g. on another node): start over from it
+        int fresh = currentStock.getAsInt();
+        if (fresh < qty) return null;
+        budgets.put(productId, split(fresh));
+        return NONE;
+    }
+
+    /** Gives a hold back if the surrounding transaction does not commit. */
+    public void releaseOnRollback(Hold hold) {
+        if (hold == NONE) return;
+        Hold once = once(hold);
+        List<Hold> scope = scopeHolds.get();
+        if (scope != null) scope.add(once);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) once.release();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code work} and, if it throws, gives back the holds it took right away. For work
+     * rolled back to a savepoint: the surrounding transaction lives on and may still commit, so
+     * {@link #releaseOnRollback} alone would never hand those units back.
+     */
+    public <T> T releaseIfFails(Supplier<T> work) {
+        List<Hold> outer = scopeHolds.get();
+        List<Hold> taken = new ArrayList<>();
+        scopeHolds.set(taken);
+        try {
+            return work.get();
+        } catch (RuntimeException | Error e) {
+            taken.forEach(Hold::release);
+            throw e;
+        } finally {
+            if (outer == null) scopeHolds.remove();
+            else scopeHolds.set(outer);
+        }
+    }
+
+    private static Hold once(Hold hold) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) hold.release();
+        };
+    }
+
+    /** Drop the budget (e.g. stock edited); the next checkout re-seeds it from the database. */
+    public void invalidate(UUID productId) {
+        budgets.remove(productId);
+    }
+
+    public void invalidateAfterCommit(UUID productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(productId);
+            }
+        });
+    }
+
+    private AtomicInteger[] split(int stock) {
+        int n = Math.max(1, Math.min(stripes, stock));
+        AtomicInteger[] cells = new AtomicInteger[n];
+        for (int i = 0; i < n; i++) {
+            cells[i] = new AtomicInteger(stock / n + (i < stock % n ? 1 : 0));
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,179 @@
+package com.spark.electronics_store.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spark.electronics_store.config.AmqpConfig;
+import com.spark.electronics_store.dto.UserSyncDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Applies user upserts and deletes published by user-management, a batch at a time (see
+ * {@link AmqpConfig#userEventsListenerFactory}). Runs of consecutive upserts are written with one
+ * {@link UserSyncService#upsertVersioned} statement. A delete is applied in its place in the
+ * sequence.
+ *
+ * Delivery order is not enough on its own (a requeued batch comes back after the messages
+ * prefetched behind it), so every event carries a version: the id of the user-management outbox
+ * row it was published from, sent as the message id. Outbox ids grow with each change to a user,
+ * and the store keeps the last one applied per user and ignores anything not newer. An event
+ * without a usable message id cannot be ordered and is dead-lettered.
+ *
+ * Failures are sorted by whether waiting can fix them:
+ * <ul>
+ *   <li>a poison event (unreadable body, invalid role or brand, a constraint the row violates) is
+ *       republished to the dead-letter queue on its own; a rejected run of upserts is retried one
+ *       upsert at a time to find it;</li>
+ *   <li>a transient failure (database unreachable, lock or serialization conflict) requeues the
+ *       batch after a pause; both operations are idempotent, so replaying it is harmless;</li>
+ *   <li>anything else rejects the batch, which the broker dead-letters, so one bad batch never
+ *       blocks user sync behind it.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class UserEventListener {
+
+    private final UserSyncService userSyncService;
+    private final ObjectMapper objectMapper;
+    private final RabbitTemplate rabbitTemplate;
+    private final long requeueBackoffMs;
+
+    public UserEventListener(UserSyncService userSyncService,
+                             ObjectMapper objectMapper,
+                             RabbitTemplate rabbitTemplate,
+                             @Value("${sync.amqp.requeue-backoff-ms:1000}") long requeueBackoffMs) {
+        this.userSyncService = userSyncService;
+        this.objectMapper = objectMapper;
+        this.rabbitTemplate = rabbitTemplate;
+        this.requeueBackoffMs = requeueBackoffMs;
+    }
+
+    private record Upsert(Message message, UserSyncService.VersionedUser event) { }
+
+    @RabbitListener(id = "userEvents", queues = AmqpConfig.USER_SYNC_QUEUE,
+            containerFactory = AmqpConfig.USER_EVENTS_LISTENER_FACTORY)
+    public void onEvents(List<Message> messages) {
+        try {
+            List<Upsert> upserts = new ArrayList<>();
+            for (Message message : messages) {
+                String type = Objects.toString(message.getMessageProperties().getReceivedRoutingKey(), "");
+                switch (type) {
+                    case AmqpConfig.USER_UPSERTED_KEY -> {
+                        UserSyncDto dto = read(message, UserSyncDto.class);
+                        Long seq = dto == null ? null : sourceSeq(message);
+                        if (seq != null) upserts.add(new Upsert(message, new UserSyncService.VersionedUser(dto, seq)));
+                    }
+                    case AmqpConfig.USER_DELETED_KEY -> {
+                        UUID userId = read(message, UUID.class);
+                        Long seq = userId == null ? null : sourceSeq(message);
+                        if (seq != null) {
+                            applyUpserts(upserts);
+                            upserts.clear();
+                            applyOne(message, () -> userSyncService.markDeleted(userId, seq));
+                        }
+                    }
+                    default -> log.warn("Ignoring user event with routing key {}", type);
+                }
+            }
+            applyUpserts(upserts);
+        } catch (RuntimeException e) {
+            if (!isTransient(e)) throw e;
+            log.warn("Transient failure applying {} user events, requeueing: {}", messages.size(), e.toString());
+            pause();
+            throw new ImmediateRequeueAmqpException("Transient failure; batch requeued", e);
+        }
+    }
+
+    private void applyUpserts(List<Upsert> upserts) {
+        if (upserts.isEmpty()) return;
+        try {
+            userSyncService.upsertVersioned(upserts.stream().map(Upsert::event).toList());
+        } catch (RuntimeException rejected) {
+            if (!isPoison(rejected)) throw rejected;
+            for (Upsert u : upserts) {
+                applyOne(u.message(), () -> userSyncService.upsertVersioned(List.of(u.event())));
+            }
+        }
+    }
+
+    private void applyOne(Message message, Runnable apply) {
+        try {
+            apply.run();
+        } catch (RuntimeException e) {
+            if (!isPoison(e)) throw e;
+            deadLetter(message, e);
+        }
+    }
+
+    private <T> T read(Message message, Class<T> type) {
+        try {
+            return objectMapper.readValue(message.getBody(), type);
+        } catch (IOException e) {
+            deadLetter(message, e);
+            return null;
+        }
+    }
+
+    /** The event's version (its outbox id, sent as the message id); null, and dead-lettered, if it has none. */
+    private Long sourceSeq(Message message) {
+        String messageId = message.getMessageProperties().getMessageId();
+        long seq = 0;
+        try {
+            if (messageId != null) seq = Long.parseLong(messageId);
+        } catch (NumberFormatException ignored) {
+            // dead-lettered below
+        }
+        if (seq > 0) return seq;
+        deadLetter(message, new IllegalArgumentException("Missing or invalid event version (message id): " + messageId));
+        return null;
+    }
+
+    /** Same headers as Spring's RepublishMessageRecoverer, so the queue reads like any other DLQ. */
+    private void deadLetter(Message message, Exception cause) {
+        var props = message.getMessageProperties();
+        log.error("Dead-lettering user event {} ({}): {}", props.getMessageId(), props.getReceivedRoutingKey(), cause.toString());
+        props.setHeader("x-exception-message", String.valueOf(cause.getMessage()));
+        props.setHeader("x-original-exchange", props.getReceivedExchange());
+        props.setHeader("x-original-routingKey", props.getReceivedRoutingKey());
+        rabbitTemplate.send(AmqpConfig.USER_EVENTS_DLX, AmqpConfig.USER_SYNC_DLQ, message);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(requeueBackoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** The event itself is wrong: retrying it can only fail the same way. */
+    static boolean isPoison(RuntimeException e) {
+        return e instanceof ResponseStatusException
+                || (e instanceof NonTransientDataAccessException && !(e instanceof DataAccessResourceFailureException));
+    }
+
+    /** The database is unreachable or busy: the same events should succeed later. */
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+}
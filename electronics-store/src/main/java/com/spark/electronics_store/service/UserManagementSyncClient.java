@@ -1,47 +1,43 @@
 package com.spark.electronics_store.service;
 
+import com.spark.electronics_store.config.AmqpConfig;
+import com.spark.electronics_store.model.OutboxEvent;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.Map;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * Outbox destination for user-management. Role changes are enqueued with {@link #enqueueRole}
+ * inside the transaction that makes them. {@link OutboxRelay} later publishes them on the user
+ * events exchange, and user-management applies them whenever it is up.
+ */
 @Component
 @RequiredArgsConstructor
-@Slf4j
-public class UserManagementSyncClient {
+public class UserManagementSyncClient implements OutboxDestination {
 
-    // simple RestTemplate is fine; if you already have a bean, inject that instead
-    private final RestTemplate restTemplate = new RestTemplate();
+    public static final String DESTINATION = "user-management";
 
-    @Value("${sync.user-base-url:http://localhost:8080}")
-    private String userBaseUrl;
+    /** Body of a role change; user-management reads it like POST /internal/sync/users. */
+    public record RoleChange(UUID id, String role) { }
 
-    @Value("${sync.shared-secret:moldo}")
-    private String sharedSecret;
+    private final OutboxService outboxService;
+    private final UserEventPublisher publisher;
 
-    /**
-     * Minimal upsert: tell user-management to set role for a user id.
-     * It hits: POST {userBaseUrl}/internal/sync/users  (your existing endpoint)
-     * Body only needs id + role; other fields remain unchanged there.
-     */
-    public void notifyRole(UUID userId, String roleName) {
-        String url = userBaseUrl + "/internal/sync/users";
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(sharedSecret);
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    /** Records that user-management should set {@code roleName} for the user; joins the caller's transaction. */
+    public void enqueueRole(UUID userId, String roleName) {
+        outboxService.enqueue(DESTINATION, AmqpConfig.ROLE_CHANGED_KEY, userId, new RoleChange(userId, roleName));
+    }
 
-        Map<String, Object> body = Map.of(
-                "id", userId.toString(),
-                "role", roleName
-        );
+    @Override
+    public String name() {
+        return DESTINATION;
+    }
 
-        restTemplate.postForEntity(url, new HttpEntity<>(body, headers), Void.class);
-        log.info("Synced role '{}' to user-management for user {}", roleName, userId);
+    // setting a role is idempotent on the other side, so a batch resent after a failed confirm is harmless
+    @Override
+    public void deliver(List<OutboxEvent> events) throws Exception {
+        publisher.publish(events);
     }
 }
@@ -8,14 +8,13 @@ import com.spark.electronics_store.repository.BrandRepository;
 import com.spark.electronics_store.repository.UserSyncRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Locale;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.UUID;
+import java.sql.Connection;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,11 +24,66 @@ public class UserSyncService {
 
     private final UserSyncRepository repository;
     private final BrandRepository brandRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     // <slug>-seller@noreply.local
     private static final Pattern SELLER_EMAIL_PATTERN =
             Pattern.compile("^([a-z0-9][a-z0-9-]*)-seller@noreply\\.local$", Pattern.CASE_INSENSITIVE);
 
+    /*
+     * The rules of upsert() for a whole batch in one statement. The rows arrive as parallel
+     * arrays. New users get the values as sent. For existing users, null fields keep the stored
+     * value. An explicit brand replaces the stored one. An inferred brand only fills an empty
+     * slot, and only when the resulting role is BRAND_SELLER. Having a brand forces BRAND_SELLER.
+     * A versioned row (source_seq > 0) only lands on an existing user if it is newer than the
+     * last event applied there; unversioned rows (the HTTP sync) always land and keep the version.
+     */
+    private static final String UPSERT_USERS = """
+            with v (id, email, name, role, token_version, deleted, brand_id, inferred_brand_id, source_seq) as (
+                select * from unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[],
+                                     ?::int[], ?::boolean[], ?::uuid[], ?::uuid[], ?::bigint[])
+            ), fresh as (
+                select v.*, coalesce(v.brand_id, case when v.role = 'BRAND_SELLER' then v.inferred_brand_id end) as new_brand_id
+                from v
+            )
+            insert into synced_users as u (id, email, name, role, token_version, deleted, brand_id, source_seq, updated_at)
+            select f.id, f.email, f.name,
+                   case when f.new_brand_id is not null then 'BRAND_SELLER' else f.role end,
+                   coalesce(f.token_version, 0), coalesce(f.deleted, false), f.new_brand_id, f.source_seq, now()
+            from fresh f
+            order by f.id
+            on conflict (id) do update
+            set (email, name, token_version, deleted, brand_id, role, source_seq, updated_at) = (
+                    select coalesce(v.email, u.email),
+                           coalesce(v.name, u.name),
+                           coalesce(v.token_version, u.token_version),
+                           coalesce(v.deleted, u.deleted),
+                           b.brand_id,
+                           case when b.brand_id is not null then 'BRAND_SELLER' else coalesce(v.role, u.role) end,
+                           greatest(u.source_seq, v.source_seq),
+                           now()
+                    from v, lateral (select coalesce(v.brand_id, u.brand_id,
+                                                     case when coalesce(v.role, u.role) = 'BRAND_SELLER'
+                                                          then v.inferred_brand_id end) as brand_id) b
+                    where v.id = excluded.id)
+            where excluded.source_seq = 0 or u.source_seq < excluded.source_seq
+            """;
+
+    /*
+     * A versioned delete. Unknown users get a deleted row holding the version, so an older
+     * upsert that arrives later cannot bring them back.
+     */
+    private static final String DELETE_USER = """
+            insert into synced_users as u (id, token_version, deleted, source_seq, updated_at)
+            values (?, 0, true, ?, now())
+            on conflict (id) do update
+            set deleted = true, source_seq = excluded.source_seq, updated_at = now()
+            where u.source_seq < excluded.source_seq
+            """;
+
+    /** A user event from user-management with its version, the outbox id it was published under. */
+    public record VersionedUser(UserSyncDto user, long sourceSeq) { }
+
     /**
      * Upsert the user record coming from the user-management service.
      *
@@ -58,11 +112,7 @@ public class UserSyncService {
 
         // Role handling (optional)
         if (dto.role() != null) {
-            try {
-                u.setRole(Role.valueOf(dto.role()));
-            } catch (IllegalArgumentException ex) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid role: " + dto.role());
-            }
+            u.setRole(parseRole(dto.role()));
         }
 
         // Token version / deletion flags (optional)
@@ -91,6 +141,114 @@ public class UserSyncService {
         repository.save(u);
     }
 
+    /**
+     * Bulk form of {@link #upsert}: the same rules for many users, applied with one
+     * INSERT ... ON CONFLICT instead of a read and a save per user. Brands are resolved up front
+     * with one query per kind (explicit ids, slugs inferred from seller emails).
+     *
+     * Differences from the single upsert, both invisible to user-management (which always sends
+     * email and role): a brand is only inferred from the email in the request, and a missing
+     * inferred brand is only created when the request itself says BRAND_SELLER.
+     *
+     * Entries for the same id are merged in order (later non-null fields win), since one
+     * statement cannot touch a row twice; rows are written in id order so concurrent batches
+     * lock them in the same order.
+     */
+    @Transactional
+    public int upsertBatch(List<UserSyncDto> dtos) {
+        if (dtos == null || dtos.isEmpty()) return 0;
+        return upsertVersioned(dtos.stream().map(dto -> new VersionedUser(dto, 0)).toList());
+    }
+
+    /**
+     * {@link #upsertBatch} for user events. Each user ends up with the newest event's fields:
+     * entries are merged in version order, and the merged row is skipped for a user whose stored
+     * version is already at or past it, so redelivered and out-of-order events change nothing.
+     */
+    @Transactional
+    public int upsertVersioned(List<VersionedUser> events) {
+        if (events == null || events.isEmpty()) return 0;
+
+        SortedMap<UUID, VersionedUser> byId = new TreeMap<>();
+        for (VersionedUser event : events.stream().sorted(Comparator.comparingLong(VersionedUser::sourceSeq)).toList()) {
+            UserSyncDto dto = event.user();
+            if (dto == null || dto.id() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing user id");
+            }
+            if (dto.role() != null) parseRole(dto.role());
+            byId.merge(dto.id(), event, (earlier, later) ->
+                    new VersionedUser(merge(earlier.user(), later.user()), later.sourceSeq()));
+        }
+
+        Set<UUID> explicitIds = new HashSet<>();
+        Set<String> slugsToCreate = new HashSet<>();
+        Set<String> slugs = new HashSet<>();
+        for (UserSyncDto dto : byId.values().stream().map(VersionedUser::user).toList()) {
+            if (dto.brandId() != null) {
+                explicitIds.add(dto.brandId());
+                continue;
+            }
+            String slug = sellerSlug(dto.email());
+            if (slug == null) continue;
+            slugs.add(slug);
+            if (Role.BRAND_SELLER.name().equals(dto.role())) slugsToCreate.add(slug);
+        }
+
+        if (!explicitIds.isEmpty() && brandRepository.findAllById(explicitIds).size() != explicitIds.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Brand not found");
+        }
+        Map<String, UUID> brandBySlug = new HashMap<>();
+        if (!slugs.isEmpty()) {
+            brandRepository.findBySlugIn(slugs).forEach(b -> brandBySlug.put(b.getSlug(), b.getId()));
+            List<Brand> created = slugsToCreate.stream()
+                    .filter(slug -> !brandBySlug.containsKey(slug))
+                    .sorted()
+                    .map(slug -> {
+                        Brand b = new Brand();
+                        b.setSlug(slug);
+                        b.setName(capitalizeWords(slug.replace('-', ' ')));
+                        return b;
+                    })
+                    .toList();
+            // flushed now: the upsert below references them by foreign key
+            brandRepository.saveAllAndFlush(created).forEach(b -> brandBySlug.put(b.getSlug(), b.getId()));
+        }
+
+        int n = byId.size();
+        UUID[] ids = new UUID[n], brandIds = new UUID[n], inferredIds = new UUID[n];
+        String[] emails = new String[n], names = new String[n], roles = new String[n];
+        Integer[] tokenVersions = new Integer[n];
+        Boolean[] deleted = new Boolean[n];
+        Long[] sourceSeqs = new Long[n];
+        int i = 0;
+        for (VersionedUser event : byId.values()) {
+            UserSyncDto dto = event.user();
+            ids[i] = dto.id();
+            emails[i] = dto.email();
+            names[i] = dto.name();
+            roles[i] = dto.role();
+            tokenVersions[i] = dto.tokenVersion();
+            deleted[i] = dto.deleted();
+            brandIds[i] = dto.brandId();
+            inferredIds[i] = dto.brandId() == null ? brandBySlug.get(sellerSlug(dto.email())) : null;
+            sourceSeqs[i] = event.sourceSeq();
+            i++;
+        }
+        jdbcTemplate.update(UPSERT_USERS, ps -> {
+            Connection con = ps.getConnection();
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("varchar", emails));
+            ps.setArray(3, con.createArrayOf("varchar", names));
+            ps.setArray(4, con.createArrayOf("varchar", roles));
+            ps.setArray(5, con.createArrayOf("int4", tokenVersions));
+            ps.setArray(6, con.createArrayOf("bool", deleted));
+            ps.setArray(7, con.createArrayOf("uuid", brandIds));
+            ps.setArray(8, con.createArrayOf("uuid", inferredIds));
+            ps.setArray(9, con.createArrayOf("int8", sourceSeqs));
+        });
+        return n;
+    }
+
     /**
      * Assign a brand to a user (replaces any previous brand).
      * Enforces: max 1 brand per user; coerces role to BRAND_SELLER.
@@ -167,6 +325,15 @@ public class UserSyncService {
         });
     }
 
+    /**
+     * Soft-delete from a user event: applied only if newer than the last event applied to the
+     * user (see {@link #upsertVersioned}).
+     */
+    @Transactional
+    public void markDeleted(UUID id, long sourceSeq) {
+        jdbcTemplate.update(DELETE_USER, id, sourceSeq);
+    }
+
     /**
      * Basic getter.
      */
@@ -188,11 +355,9 @@ public class UserSyncService {
     }
 
     private void maybeAttachBrandFromEmail(UserSync user) {
-        String email = Optional.ofNullable(user.getEmail()).orElse("").toLowerCase(Locale.ROOT);
-        Matcher m = SELLER_EMAIL_PATTERN.matcher(email);
-        if (!m.matches()) return;
+        String slug = sellerSlug(user.getEmail());
+        if (slug == null) return;
 
-        String slug = m.group(1); // the brand slug
         Brand brand = brandRepository.findBySlug(slug).orElseGet(() -> {
             Brand b = new Brand();
             b.setSlug(slug);
@@ -203,6 +368,33 @@ public class UserSyncService {
         user.setBrand(brand);
     }
 
+    /** The brand slug of a "<slug>-seller@noreply.local" address, else null. */
+    private static String sellerSlug(String email) {
+        if (email == null) return null;
+        Matcher m = SELLER_EMAIL_PATTERN.matcher(email.toLowerCase(Locale.ROOT));
+        return m.matches() ? m.group(1) : null;
+    }
+
+    private static Role parseRole(String role) {
+        try {
+            return Role.valueOf(role);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid role: " + role);
+        }
+    }
+
+    private static UserSyncDto merge(UserSyncDto earlier, UserSyncDto later) {
+        return new UserSyncDto(
+                later.id(),
+                later.name() != null ? later.name() : earlier.name(),
+                later.email() != null ? later.email() : earlier.email(),
+                later.role() != null ? later.role() : earlier.role(),
+                later.tokenVersion() != null ? later.tokenVersion() : earlier.tokenVersion(),
+                later.deleted() != null ? later.deleted() : earlier.deleted(),
+                later.brandId() != null ? later.brandId() : earlier.brandId()
+        );
+    }
+
     private void assertNotDeleted(UserSync user) {
         if (user.isDeleted()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User is deleted");
@@ -0,0 +1,100 @@
+package com.spark.electronics_store.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An amount as a whole number of the currency's minor unit (bani, cents, ...) plus the ISO code.
+ * Entities store the minor units in bigint columns; arithmetic is plain {@code long} math that
+ * throws on overflow instead of wrapping.
+ *
+ * Rounding happens once, where a decimal enters the system (request, CSV, query parameter): it
+ * is rounded HALF_UP to the currency's minor unit. Everything computed from stored amounts is
+ * exact. Unknown or missing currency codes use two decimals.
+ *
+ * The static helpers work on raw minor units so hot paths (order totals, mappers) allocate
+ * nothing; the record itself is for call sites that want amount and currency together.
+ */
+public record Money(long minor, String currency) {
+
+    private static final int DEFAULT_SCALE = 2;
+    private static final ConcurrentHashMap<String, Integer> SCALES = new ConcurrentHashMap<>();
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money of(BigDecimal amount, String currency) {
+        return new Money(toMinor(amount, currency), currency);
+    }
+
+    public static Money zero(String currency) {
+        return new Money(0, currency);
+    }
+
+    public Money plus(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+        return new Money(Math.addExact(minor, other.minor), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minor, quantity), currency);
+    }
+
+    public BigDecimal toDecimal() {
+        return toDecimal(minor, currency);
+    }
+
+    @Override
+    public String toString() {
+        return toDecimal().toPlainString() + " " + currency;
+    }
+
+    // ---- minor-unit helpers ----
+
+    /** Digits after the decimal point for {@code currency} (0 for JPY, 2 for RON/EUR, 3 for KWD). */
+    public static int scale(String currency) {
+        if (currency == null || currency.isBlank()) return DEFAULT_SCALE;
+        return SCALES.computeIfAbsent(currency, code -> {
+            try {
+                int digits = Currency.getInstance(code.trim().toUpperCase()).getDefaultFractionDigits();
+                return digits >= 0 ? digits : DEFAULT_SCALE;
+            } catch (IllegalArgumentException unknown) {
+                return DEFAULT_SCALE;
+            }
+        });
+    }
+
+    /** Rounds HALF_UP to the minor unit; throws ArithmeticException if it does not fit a long. */
+    public static long toMinor(BigDecimal amount, String currency) {
+        return toMinor(amount, currency, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Same with an explicit rounding mode, for amounts that are not prices but bounds: a range
+     * filter rounds its lower bound up (CEILING) and its upper bound down (FLOOR), so it never
+     * matches a price outside the range the user asked for.
+     */
+    public static long toMinor(BigDecimal amount, String currency, RoundingMode rounding) {
+        return amount.setScale(scale(currency), rounding).unscaledValue().longValueExact();
+    }
+
+    /** Parses a decimal string ("1299.9"); throws NumberFormatException when it is not a number. */
+    public static long parseMinor(String amount, String currency) {
+        return toMinor(new BigDecimal(amount.trim()), currency);
+    }
+
+    public static BigDecimal toDecimal(long minor, String currency) {
+        return BigDecimal.valueOf(minor, scale(currency));
+    }
+
+    /** Null-safe variant for optional amounts (e.g. a product without a price). */
+    public static BigDecimal toDecimal(Long minor, String currency) {
+        return minor == null ? null : toDecimal(minor.longValue(), currency);
+    }
+}
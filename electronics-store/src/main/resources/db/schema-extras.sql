@@ -0,0 +1,5 @@
+-- Runs after Hibernate has created the schema (spring.jpa.defer-datasource-initialization).
+
+-- Photo bytes are already-compressed images: keep them out of line and uncompressed so that
+-- substring() reads (ProductPhotoRepository.readChunk) only fetch the TOAST chunks they cover.
+ALTER TABLE product_photos ALTER COLUMN data SET STORAGE EXTERNAL;
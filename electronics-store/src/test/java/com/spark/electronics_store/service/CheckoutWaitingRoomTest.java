@@ -0,0 +1,136 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.order.CheckoutTicketResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Admission, FIFO order and expiry of the checkout waiting room; in memory, no Spring context. */
+class CheckoutWaitingRoomTest {
+
+	private static final long LONG = 60_000;
+
+	private static CheckoutWaitingRoom room(int slots, int maxWaiting, long pollTimeoutMs, long readyTtlMs) {
+		return new CheckoutWaitingRoom(slots, maxWaiting, pollTimeoutMs, readyTtlMs, 2, new SimpleMeterRegistry());
+	}
+
+	@Test
+	void admitsDirectlyWhileSlotsAreFree() {
+		CheckoutWaitingRoom room = room(2, 10, LONG, LONG);
+
+		assertTrue(room.tryAdmit(UUID.randomUUID(), null).isPresent());
+		assertTrue(room.tryAdmit(UUID.randomUUID(), null).isPresent());
+		assertTrue(room.tryAdmit(UUID.randomUUID(), null).isEmpty());
+	}
+
+	@Test
+	void slotsGoToTicketsInArrivalOrder() {
+		CheckoutWaitingRoom room = room(1, 10, LONG, LONG);
+		UUID a = UUID.randomUUID(), b = UUID.randomUUID(), c = UUID.randomUUID();
+		CheckoutWaitingRoom.Admission first = room.tryAdmit(a, null).orElseThrow();
+
+		CheckoutTicketResponse tb = room.enqueue(b, null);
+		CheckoutTicketResponse tc = room.enqueue(c, null);
+		assertEquals(1, tb.position());
+		assertEquals(2, tc.position());
+
+		first.close();
+		assertEquals("READY", poll(room, b, tb).status());
+		assertEquals(0, poll(room, b, tb).position());
+		assertEquals(1, poll(room, c, tc).position());
+
+		// c is behind b, and a newcomer cannot take the slot reserved for b
+		assertTrue(room.tryAdmit(c, tc.ticketId()).isEmpty());
+		assertTrue(room.tryAdmit(UUID.randomUUID(), null).isEmpty());
+		room.tryAdmit(b, tb.ticketId()).orElseThrow().close();
+
+		assertEquals("READY", poll(room, c, tc).status());
+	}
+
+	@Test
+	void closingAnAdmissionTwiceFreesOneSlot() {
+		CheckoutWaitingRoom room = room(1, 10, LONG, LONG);
+		CheckoutWaitingRoom.Admission admission = room.tryAdmit(UUID.randomUUID(), null).orElseThrow();
+
+		admission.close();
+		admission.close();
+
+		assertTrue(room.tryAdmit(UUID.randomUUID(), null).isPresent());
+		assertTrue(room.tryAdmit(UUID.randomUUID(), null).isEmpty());
+	}
+
+	@Test
+	void abandonedTicketsAreDroppedAndNoLongerCountedAhead() throws InterruptedException {
+		CheckoutWaitingRoom room = room(1, 10, 50, LONG);
+		room.tryAdmit(UUID.randomUUID(), null).orElseThrow();
+		UUID b = UUID.randomUUID(), c = UUID.randomUUID(), d = UUID.randomUUID();
+		CheckoutTicketResponse tb = room.enqueue(b, null);
+		CheckoutTicketResponse tc = room.enqueue(c, null);
+
+		Thread.sleep(120);
+		CheckoutTicketResponse td = room.enqueue(d, null);
+		assertEquals(3, td.position());
+		poll(room, c, tc); // c keeps polling, b went away
+		room.sweep();
+
+		assertTrue(room.poll(b, tb.ticketId()).isEmpty());
+		assertEquals(1, poll(room, c, tc).position());
+		assertEquals(2, poll(room, d, td).position());
+	}
+
+	@Test
+	void anUnusedReadyTicketExpiresAndItsSlotPassesOn() throws InterruptedException {
+		CheckoutWaitingRoom room = room(1, 10, LONG, 10);
+		UUID b = UUID.randomUUID(), c = UUID.randomUUID();
+		CheckoutWaitingRoom.Admission first = room.tryAdmit(UUID.randomUUID(), null).orElseThrow();
+		CheckoutTicketResponse tb = room.enqueue(b, null);
+		CheckoutTicketResponse tc = room.enqueue(c, null);
+		first.close();
+		assertEquals("READY", poll(room, b, tb).status());
+
+		Thread.sleep(30);
+		room.sweep();
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> room.tryAdmit(b, tb.ticketId()));
+		assertEquals(HttpStatus.GONE, e.getStatusCode());
+		assertEquals("READY", poll(room, c, tc).status());
+		assertTrue(room.tryAdmit(c, tc.ticketId()).isPresent());
+	}
+
+	@Test
+	void aTicketOnlyWorksForItsOwnBuyer() {
+		CheckoutWaitingRoom room = room(1, 10, LONG, LONG);
+		room.tryAdmit(UUID.randomUUID(), null).orElseThrow();
+		CheckoutTicketResponse t = room.enqueue(UUID.randomUUID(), null);
+
+		assertThrows(ResponseStatusException.class, () -> room.tryAdmit(UUID.randomUUID(), t.ticketId()));
+		assertTrue(room.poll(UUID.randomUUID(), t.ticketId()).isEmpty());
+	}
+
+	@Test
+	void reEnqueueingReturnsTheSameTicketAndAFullQueueRefuses() {
+		CheckoutWaitingRoom room = room(1, 2, LONG, LONG);
+		room.tryAdmit(UUID.randomUUID(), null).orElseThrow();
+		UUID b = UUID.randomUUID();
+		CheckoutTicketResponse tb = room.enqueue(b, null);
+
+		assertEquals(tb.ticketId(), room.enqueue(b, tb.ticketId()).ticketId());
+		room.enqueue(UUID.randomUUID(), null);
+		ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> room.enqueue(UUID.randomUUID(), null));
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+	}
+
+	private static CheckoutTicketResponse poll(CheckoutWaitingRoom room, UUID buyerId, CheckoutTicketResponse ticket) {
+		Optional<CheckoutTicketResponse> now = room.poll(buyerId, ticket.ticketId());
+		assertTrue(now.isPresent());
+		return now.get();
+	}
+}
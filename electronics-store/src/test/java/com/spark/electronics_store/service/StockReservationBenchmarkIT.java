@@ -0,0 +1,128 @@
+package com.spark.electronics_store.service;
+
+import com.spark.electronics_store.dto.order.OrderCreateRequest;
+import com.spark.electronics_store.model.Brand;
+import com.spark.electronics_store.model.Product;
+import com.spark.electronics_store.model.ProductStatus;
+import com.spark.electronics_store.model.Role;
+import com.spark.electronics_store.model.UserSync;
+import com.spark.electronics_store.repository.BrandRepository;
+import com.spark.electronics_store.repository.ProductRepository;
+import com.spark.electronics_store.repository.UserSyncRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 1,000 buyers race for 100 units of one product, timed. Exactly 100 orders must succeed, the rest
+ * must be refused with 409, and the stock column must end at zero (no oversell). Not part of the
+ * default build: run with {@code mvn -Pbenchmark verify}. StockReservationTest keeps the
+ * no-oversell check, at a smaller scale, in the regular suite.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class StockReservationBenchmarkIT {
+
+	private static final Logger log = LoggerFactory.getLogger(StockReservationBenchmarkIT.class);
+
+	private static final int BUYERS = 1_000;
+	private static final int UNITS = 100;
+
+	@Autowired
+	private OrderService orderService;
+	@Autowired
+	private BrandRepository brandRepository;
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private UserSyncRepository userSyncRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void hotProductNeverOversells() throws Exception {
+		String tag = UUID.randomUUID().toString().substring(0, 8);
+		Brand brand = brandRepository.save(Brand.builder().name("bench-" + tag).slug("bench-" + tag).build());
+		Product product = productRepository.save(Product.builder()
+				.id(UUID.randomUUID())
+				.brand(brand)
+				.name("Hot item " + tag)
+				.slug("hot-item-" + tag)
+				.priceMinor(999L)
+				.currency("RON")
+				.stock(UNITS)
+				.status(ProductStatus.ACTIVE)
+				.build());
+		UserSync buyer = userSyncRepository.save(UserSync.builder()
+				.id(UUID.randomUUID())
+				.email("bench-" + tag + "@example.com")
+				.name("Bench buyer")
+				.role(Role.USER)
+				.build());
+
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger refused = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> results = new ArrayList<>(BUYERS);
+		long elapsedNanos;
+		try (ExecutorService buyers = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < BUYERS; i++) {
+				results.add(buyers.submit(() -> {
+					start.await();
+					try {
+						orderService.create(singleItemOrder(buyer.getId(), product.getId()));
+						sold.incrementAndGet();
+					} catch (ResponseStatusException e) {
+						assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+						refused.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+			long t0 = System.nanoTime();
+			start.countDown();
+			for (Future<?> f : results) f.get(); // rethrows anything other than a stock refusal
+			elapsedNanos = System.nanoTime() - t0;
+		}
+
+		Integer stockLeft = jdbcTemplate.queryForObject("select stock from product where id = ?", Integer.class, product.getId());
+		Integer unitsOrdered = jdbcTemplate.queryForObject(
+				"select coalesce(sum(qty), 0) from order_items where product_id = ?", Integer.class, product.getId());
+
+		log.info("stock reservation: {} checkouts ({} sold, {} refused) in {} ms, {} checkouts/s",
+				BUYERS, sold.get(), refused.get(), elapsedNanos / 1_000_000, Math.round(BUYERS / (elapsedNanos / 1e9)));
+
+		assertEquals(UNITS, sold.get());
+		assertEquals(BUYERS - UNITS, refused.get());
+		assertEquals(0, stockLeft);
+		assertEquals(UNITS, unitsOrdered);
+	}
+
+	private static OrderCreateRequest singleItemOrder(UUID buyerId, UUID productId) {
+		OrderCreateRequest.Item item = new OrderCreateRequest.Item();
+		item.setProductId(productId);
+		item.setQuantity(1);
+		OrderCreateRequest req = new OrderCreateRequest();
+		req.setBuyerId(buyerId);
+		req.setItems(List.of(item));
+		req.setShippingName("Bench buyer");
+		return req;
+	}
+}
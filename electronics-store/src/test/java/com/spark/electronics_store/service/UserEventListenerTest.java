@@ -0,0 +1,262 @@
+package com.spark.electronics_store.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import com.spark.electronics_store.config.AmqpConfig;
+import com.spark.electronics_store.dto.UserSyncDto;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The user events consumer without a running broker. The test plays the broker: it hands a
+ * prefetched batch to the listener container built by {@link AmqpConfig}, through the same
+ * batch adapter the container uses. The container itself never connects.
+ */
+@SpringJUnitConfig
+@TestPropertySource(properties = {
+		"sync.amqp.batch-size=20",
+		"sync.amqp.prefetch=50",
+		"sync.amqp.auto-startup=false",
+		"sync.amqp.requeue-backoff-ms=0"
+})
+class UserEventListenerTest {
+
+	@Configuration
+	@EnableRabbit
+	@Import({AmqpConfig.class, UserEventListener.class})
+	static class Config {
+
+		@Bean
+		ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+
+		@Bean
+		ConnectionFactory connectionFactory() {
+			return mock(ConnectionFactory.class);
+		}
+	}
+
+	@Autowired
+	private RabbitListenerEndpointRegistry registry;
+
+	@MockitoBean
+	private UserSyncService userSyncService;
+
+	@MockitoBean
+	private RabbitTemplate rabbitTemplate;
+
+	@Autowired
+	private Queue userSyncQueue;
+
+	private static final AtomicLong outboxIds = new AtomicLong();
+
+	@Test
+	void containerIsABatchConsumerWithPrefetchCoveringABatch() {
+		SimpleMessageListenerContainer container = container();
+		assertTrue(container.isConsumerBatchEnabled());
+		assertEquals(20, ReflectionTestUtils.getField(container, "batchSize"));
+		assertEquals(50, ReflectionTestUtils.getField(container, "prefetchCount"));
+		assertFalse((Boolean) ReflectionTestUtils.getField(container, "defaultRequeueRejected"));
+		assertEquals(Boolean.TRUE, userSyncQueue.getArguments().get("x-single-active-consumer"));
+	}
+
+	@Test
+	void consecutiveUpsertsAreWrittenTogetherAndDeletesKeepTheirPlace() throws Exception {
+		UUID a = UUID.randomUUID(), b = UUID.randomUUID(), c = UUID.randomUUID();
+
+		Message deleteA = delete(a);
+		deliver(upsert(a, "a@x.io", "USER"), upsert(b, "b@x.io", "ADMIN"), deleteA, upsert(c, "c@x.io", "USER"));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<UserSyncService.VersionedUser>> batches = ArgumentCaptor.forClass(List.class);
+		InOrder order = inOrder(userSyncService);
+		order.verify(userSyncService).upsertVersioned(batches.capture());
+		order.verify(userSyncService).markDeleted(a, Long.parseLong(deleteA.getMessageProperties().getMessageId()));
+		order.verify(userSyncService).upsertVersioned(batches.capture());
+
+		assertEquals(List.of(a, b), batches.getAllValues().get(0).stream().map(e -> e.user().id()).toList());
+		assertEquals(List.of(c), batches.getAllValues().get(1).stream().map(e -> e.user().id()).toList());
+		assertEquals("ADMIN", batches.getAllValues().get(0).get(1).user().role());
+	}
+
+	@Test
+	void eachEventCarriesItsOutboxIdAsVersion() throws Exception {
+		UUID a = UUID.randomUUID();
+		Message newer = upsert(a, "new@x.io", "USER", 42);
+		Message older = upsert(a, "old@x.io", "USER", 41);
+
+		// a requeued batch can come back behind later events; the versions travel with them
+		deliver(newer, older);
+
+		verify(userSyncService).upsertVersioned(List.of(
+				new UserSyncService.VersionedUser(dto(newer), 42),
+				new UserSyncService.VersionedUser(dto(older), 41)));
+	}
+
+	@Test
+	void anEventWithoutAVersionIsDeadLettered() throws Exception {
+		UUID a = UUID.randomUUID();
+		Message unversioned = upsert(a, "a@x.io", "USER");
+		unversioned.getMessageProperties().setMessageId(null);
+		Message badDelete = delete(a);
+		badDelete.getMessageProperties().setMessageId("not-a-number");
+
+		deliver(unversioned, badDelete);
+
+		verify(userSyncService, never()).upsertVersioned(anyList());
+		verify(userSyncService, never()).markDeleted(any(), anyLong());
+		verify(rabbitTemplate).send(AmqpConfig.USER_EVENTS_DLX, AmqpConfig.USER_SYNC_DLQ, unversioned);
+		verify(rabbitTemplate).send(AmqpConfig.USER_EVENTS_DLX, AmqpConfig.USER_SYNC_DLQ, badDelete);
+	}
+
+	@Test
+	void aRejectedBatchIsRetriedPerUserAndPoisonEventsAreDeadLettered() throws Exception {
+		willThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid role: NOPE"))
+				.given(userSyncService).upsertVersioned(argThat(events -> events.size() > 1));
+		willThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid role: NOPE"))
+				.given(userSyncService).upsertVersioned(argThat(events -> single(events, e -> "NOPE".equals(e.user().role()))));
+
+		Message garbage = message(AmqpConfig.USER_UPSERTED_KEY, "{not json");
+		deliver(upsert(UUID.randomUUID(), "ok@x.io", "USER"), garbage, upsert(UUID.randomUUID(), "bad@x.io", "NOPE"));
+
+		// both readable upserts were tried one by one; the listener did not throw, so the batch is acked
+		verify(userSyncService, times(2)).upsertVersioned(argThat(events -> events.size() == 1));
+		verify(rabbitTemplate, times(2)).send(eq(AmqpConfig.USER_EVENTS_DLX), eq(AmqpConfig.USER_SYNC_DLQ), any(Message.class));
+		verify(rabbitTemplate).send(AmqpConfig.USER_EVENTS_DLX, AmqpConfig.USER_SYNC_DLQ, garbage);
+	}
+
+	@Test
+	void aConstraintViolationIsIsolatedToItsEvent() throws Exception {
+		UUID ok = UUID.randomUUID(), tooLong = UUID.randomUUID();
+		willThrow(new DataIntegrityViolationException("value too long for type character varying(255)"))
+				.given(userSyncService).upsertVersioned(argThat(events -> events.size() > 1));
+		willThrow(new DataIntegrityViolationException("value too long for type character varying(255)"))
+				.given(userSyncService).upsertVersioned(argThat(events -> single(events, e -> tooLong.equals(e.user().id()))));
+
+		Message poison = upsert(tooLong, "x".repeat(300) + "@x.io", "USER");
+		deliver(upsert(ok, "ok@x.io", "USER"), poison);
+
+		verify(userSyncService).upsertVersioned(argThat(events -> single(events, e -> ok.equals(e.user().id()))));
+		verify(rabbitTemplate).send(AmqpConfig.USER_EVENTS_DLX, AmqpConfig.USER_SYNC_DLQ, poison);
+		assertEquals(AmqpConfig.USER_UPSERTED_KEY, poison.getMessageProperties().getHeader("x-original-routingKey"));
+	}
+
+	@Test
+	void aTransientFailureRequeuesTheBatch() {
+		willThrow(new CannotCreateTransactionException("connection refused"))
+				.given(userSyncService).upsertVersioned(anyList());
+
+		Exception e = assertThrows(Exception.class, () -> deliver(upsert(UUID.randomUUID(), "a@x.io", "USER")));
+
+		assertTrue(causedBy(e, ImmediateRequeueAmqpException.class));
+		verify(userSyncService, times(1)).upsertVersioned(anyList());
+		verify(rabbitTemplate, never()).send(anyString(), anyString(), any(Message.class));
+	}
+
+	@Test
+	void anUnexpectedFailureRejectsTheBatchToTheDeadLetterQueue() {
+		willThrow(new IllegalStateException("bug")).given(userSyncService).upsertVersioned(anyList());
+
+		Exception e = assertThrows(Exception.class, () -> deliver(upsert(UUID.randomUUID(), "a@x.io", "USER")));
+
+		// not an immediate requeue: with defaultRequeueRejected=false the broker dead-letters the batch
+		assertTrue(causedBy(e, IllegalStateException.class));
+		assertFalse(causedBy(e, ImmediateRequeueAmqpException.class));
+	}
+
+	private static boolean single(List<UserSyncService.VersionedUser> events, Predicate<UserSyncService.VersionedUser> test) {
+		return events != null && events.size() == 1 && test.test(events.get(0));
+	}
+
+	private static UserSyncDto dto(Message message) throws Exception {
+		return new ObjectMapper().readValue(message.getBody(), UserSyncDto.class);
+	}
+
+	private static boolean causedBy(Throwable e, Class<? extends Throwable> type) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (type.isInstance(t)) return true;
+		}
+		return false;
+	}
+
+	private SimpleMessageListenerContainer container() {
+		return (SimpleMessageListenerContainer) registry.getListenerContainer("userEvents");
+	}
+
+	private void deliver(Message... messages) throws Exception {
+		ChannelAwareBatchMessageListener listener = (ChannelAwareBatchMessageListener) container().getMessageListener();
+		listener.onMessageBatch(List.of(messages), mock(Channel.class));
+	}
+
+	private static Message upsert(UUID id, String email, String role) {
+		return upsert(id, email, role, outboxIds.incrementAndGet());
+	}
+
+	private static Message upsert(UUID id, String email, String role, long outboxId) {
+		Message message = message(AmqpConfig.USER_UPSERTED_KEY,
+				"{\"id\":\"" + id + "\",\"email\":\"" + email + "\",\"name\":\"N\",\"role\":\"" + role
+						+ "\",\"tokenVersion\":0,\"deleted\":false}");
+		message.getMessageProperties().setMessageId(String.valueOf(outboxId));
+		return message;
+	}
+
+	private static Message delete(UUID id) {
+		return message(AmqpConfig.USER_DELETED_KEY, "\"" + id + "\"");
+	}
+
+	private static Message message(String routingKey, String json) {
+		MessageProperties props = new MessageProperties();
+		props.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+		props.setReceivedExchange(AmqpConfig.USER_EVENTS_EXCHANGE);
+		props.setReceivedRoutingKey(routingKey);
+		props.setMessageId(String.valueOf(outboxIds.incrementAndGet()));
+		return new Message(json.getBytes(StandardCharsets.UTF_8), props);
+	}
+}
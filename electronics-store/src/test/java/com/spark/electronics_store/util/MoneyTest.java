@@ -0,0 +1,94 @@
+package com.spark.electronics_store.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+	@Test
+	void scaleFollowsTheCurrencyMinorUnit() {
+		assertEquals(0, Money.scale("JPY"));
+		assertEquals(2, Money.scale("RON"));
+		assertEquals(3, Money.scale("KWD"));
+		assertEquals(2, Money.scale(" eur "));
+		assertEquals(2, Money.scale(null));
+		assertEquals(2, Money.scale("NOPE"));
+	}
+
+	@Test
+	void roundsHalfUpAtScaleZero() {
+		assertEquals(1, Money.toMinor(new BigDecimal("0.5"), "JPY"));
+		assertEquals(1, Money.toMinor(new BigDecimal("1.49"), "JPY"));
+		assertEquals(1300, Money.toMinor(new BigDecimal("1299.5"), "JPY"));
+		assertEquals(-2, Money.toMinor(new BigDecimal("-1.5"), "JPY"));
+	}
+
+	@Test
+	void roundsHalfUpAtScaleTwo() {
+		assertEquals(101, Money.toMinor(new BigDecimal("1.005"), "RON"));
+		assertEquals(100, Money.toMinor(new BigDecimal("1.004"), "RON"));
+		assertEquals(129999, Money.toMinor(new BigDecimal("1299.99"), "RON"));
+		assertEquals(-101, Money.toMinor(new BigDecimal("-1.005"), "RON"));
+	}
+
+	@Test
+	void roundsHalfUpAtScaleThree() {
+		assertEquals(1001, Money.toMinor(new BigDecimal("1.0005"), "KWD"));
+		assertEquals(1000, Money.toMinor(new BigDecimal("1.0004"), "KWD"));
+		assertEquals(12_500, Money.toMinor(new BigDecimal("12.5"), "KWD"));
+	}
+
+	@Test
+	void rangeBoundsRoundInward() {
+		// a 10.005 minimum must not match a 10.00 price, a 10.005 maximum must not match 10.01
+		assertEquals(1001, Money.toMinor(new BigDecimal("10.005"), "RON", RoundingMode.CEILING));
+		assertEquals(1000, Money.toMinor(new BigDecimal("10.005"), "RON", RoundingMode.FLOOR));
+		assertEquals(1000, Money.toMinor(new BigDecimal("10.00"), "RON", RoundingMode.CEILING));
+		assertEquals(-1000, Money.toMinor(new BigDecimal("-10.001"), "RON", RoundingMode.CEILING));
+		assertEquals(-1001, Money.toMinor(new BigDecimal("-10.001"), "RON", RoundingMode.FLOOR));
+		assertEquals(2, Money.toMinor(new BigDecimal("1.2"), "JPY", RoundingMode.CEILING));
+	}
+
+	@Test
+	void toDecimalIsTheExactInverse() {
+		assertEquals(new BigDecimal("1299.99"), Money.toDecimal(129999L, "RON"));
+		assertEquals(new BigDecimal("1300"), Money.toDecimal(1300L, "JPY"));
+		assertEquals(new BigDecimal("1.001"), Money.toDecimal(1001L, "KWD"));
+		assertNull(Money.toDecimal((Long) null, "RON"));
+	}
+
+	@Test
+	void overflowThrowsInsteadOfWrapping() {
+		BigDecimal tooLarge = new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE);
+		assertThrows(ArithmeticException.class, () -> Money.toMinor(tooLarge, "JPY"));
+		assertThrows(ArithmeticException.class, () -> Money.toMinor(new BigDecimal("92233720368547758.08"), "RON"));
+
+		Money max = new Money(Long.MAX_VALUE, "RON");
+		assertThrows(ArithmeticException.class, () -> max.plus(new Money(1, "RON")));
+		assertThrows(ArithmeticException.class, () -> max.times(2));
+		assertEquals(Long.MAX_VALUE, Money.toMinor(new BigDecimal("92233720368547758.07"), "RON"));
+	}
+
+	@Test
+	void parseMinorTrimsAndRejectsNonNumbers() {
+		assertEquals(1250, Money.parseMinor(" 12.5 ", "RON"));
+		assertEquals(13, Money.parseMinor("12.5", "JPY"));
+		assertThrows(NumberFormatException.class, () -> Money.parseMinor("12,50", "RON"));
+		assertThrows(NumberFormatException.class, () -> Money.parseMinor("abc", "RON"));
+		assertThrows(NumberFormatException.class, () -> Money.parseMinor("", "RON"));
+		assertThrows(ArithmeticException.class, () -> Money.parseMinor("1e30", "RON"));
+	}
+
+	@Test
+	void arithmeticRefusesToMixCurrencies() {
+		assertEquals(new Money(300, "RON"), new Money(100, "RON").plus(new Money(200, "RON")));
+		assertThrows(IllegalArgumentException.class, () -> new Money(100, "RON").plus(new Money(100, "JPY")));
+		assertThrows(NullPointerException.class, () -> new Money(1, null));
+	}
+}
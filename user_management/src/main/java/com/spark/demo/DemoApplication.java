@@ -112,8 +112,8 @@ public class DemoApplication {
 				a.setEmailVerified(true);
 				return userRepository.save(a);
 			});
-			notifyWithRetry(userSyncNotifier, admin, 6, 1000);
-			System.out.println("Admin ready & synced.");
+			userSyncNotifier.notifyUpsert(admin); // outbox: delivered once the store is up
+			System.out.println("Admin ready & queued for sync.");
 
 			// 2) Build seller list (by brand slug)
 			List<String> slugs;
@@ -141,28 +141,12 @@ public class DemoApplication {
 				});
 
 				// Sync to electronics-store (upsert). Electronics-store will attach Brand based on the email slug.
-				notifyWithRetry(userSyncNotifier, u, 6, 1000);
-				System.out.println("Seller ready & synced: " + email);
+				userSyncNotifier.notifyUpsert(u);
+				System.out.println("Seller ready & queued for sync: " + email);
 			}
 		};
 	}
 
-	private static void notifyWithRetry(UserSyncNotifier notifier, User user, int attempts, long sleepMs) {
-		for (int i = 1; i <= attempts; i++) {
-			try {
-				notifier.notifyUpsert(user);
-				return;
-			} catch (Exception e) {
-				if (i == attempts) {
-					System.err.println("Failed to sync user " + user.getEmail() +
-							" after " + attempts + " attempts: " + e.getMessage());
-					return;
-				}
-				try { Thread.sleep(sleepMs); } catch (InterruptedException ignored) {}
-			}
-		}
-	}
-
 	private static String capitalizeSlug(String slug) {
 		return Arrays.stream(slug.split("-"))
 				.filter(s -> !s.isBlank())
@@ -0,0 +1,71 @@
+package com.spark.demo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.ExchangeBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * User events between this service and the store travel over one durable topic exchange. The
+ * routing key is the event type. Each consumer declares and binds its own queue. This service
+ * publishes user upserts and deletes, and consumes role changes made in the store.
+ *
+ * A role change the listener rejects is not requeued (spring.rabbitmq.listener.simple.
+ * default-requeue-rejected=false); the broker moves it to {@code user-management.role-sync.dlq}.
+ */
+@Configuration
+public class AmqpConfig {
+
+    public static final String USER_EVENTS_EXCHANGE = "user.events";
+    public static final String ROLE_CHANGED_KEY = "user.role-changed";
+    public static final String ROLE_SYNC_QUEUE = "user-management.role-sync";
+    public static final String USER_EVENTS_DLX = "user.events.dlx";
+    public static final String ROLE_SYNC_DLQ = "user-management.role-sync.dlq";
+
+    @Bean
+    public TopicExchange userEventsExchange() {
+        return ExchangeBuilder.topicExchange(USER_EVENTS_EXCHANGE).durable(true).build();
+    }
+
+    @Bean
+    public DirectExchange userEventsDeadLetterExchange() {
+        return ExchangeBuilder.directExchange(USER_EVENTS_DLX).durable(true).build();
+    }
+
+    @Bean
+    public Queue roleSyncQueue() {
+        return QueueBuilder.durable(ROLE_SYNC_QUEUE)
+                .deadLetterExchange(USER_EVENTS_DLX)
+                .deadLetterRoutingKey(ROLE_SYNC_DLQ)
+                .build();
+    }
+
+    @Bean
+    public Queue roleSyncDeadLetterQueue() {
+        return QueueBuilder.durable(ROLE_SYNC_DLQ).build();
+    }
+
+    @Bean
+    public Binding roleSyncDeadLetterBinding(Queue roleSyncDeadLetterQueue, DirectExchange userEventsDeadLetterExchange) {
+        return BindingBuilder.bind(roleSyncDeadLetterQueue).to(userEventsDeadLetterExchange).with(ROLE_SYNC_DLQ);
+    }
+
+    @Bean
+    public Binding roleSyncBinding(Queue roleSyncQueue, TopicExchange userEventsExchange) {
+        return BindingBuilder.bind(roleSyncQueue).to(userEventsExchange).with(ROLE_CHANGED_KEY);
+    }
+
+    // picked up by the listener container factory: JSON bodies map onto the listener's parameter type
+    @Bean
+    public MessageConverter amqpMessageConverter(ObjectMapper objectMapper) {
+        return new Jackson2JsonMessageConverter(objectMapper);
+    }
+}
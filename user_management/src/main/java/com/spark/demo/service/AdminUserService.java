@@ -93,12 +93,8 @@ public class AdminUserService {
         User user = builder.build();
         userRepository.save(user);
 
-        // sync to store (non-blocking in sense of not failing flow if sync eventually fails)
-        try {
-            userSyncNotifier.notifyUpsert(user);
-        } catch (Exception e) {
-            log.warn("Failed to notify store about created user {}: {}", user.getId(), e.getMessage());
-        }
+        // outbox row in this transaction; the store is told after commit
+        userSyncNotifier.notifyUpsert(user);
 
         return toResponse(user);
     }
@@ -140,15 +136,12 @@ public class AdminUserService {
 
         userRepository.save(user);
 
-        try {
-            userSyncNotifier.notifyUpsert(user);
-        } catch (Exception e) {
-            log.warn("Failed to notify store about updated user {}: {}", user.getId(), e.getMessage());
-        }
+        userSyncNotifier.notifyUpsert(user);
 
         return toResponse(user);
     }
 
+    @Transactional
     public void delete(UUID id) {
         if (!userRepository.existsById(id)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
@@ -156,10 +149,6 @@ public class AdminUserService {
 
         userRepository.deleteById(id);
 
-        try {
-            userSyncNotifier.notifyDelete(id);
-        } catch (Exception e) {
-            log.warn("Failed to notify store about deleted user {}: {}", id, e.getMessage());
-        }
+        userSyncNotifier.notifyDelete(id);
     }
 }
@@ -0,0 +1,19 @@
+package com.spark.demo.service;
+
+import com.spark.demo.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Delivers outbox events to one peer. {@link OutboxRelay} hands it the newest event of each
+ * aggregate, at most one per aggregate per call. Delivery is all-or-nothing from the relay's
+ * point of view: any exception puts the whole batch back for a retry, so the receiving side must
+ * apply events idempotently (an upsert of the latest state).
+ */
+public interface OutboxDestination {
+
+    /** Matches {@link OutboxEvent#getDestination()}. */
+    String name();
+
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
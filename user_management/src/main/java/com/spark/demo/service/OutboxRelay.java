@@ -0,0 +1,164 @@
+package com.spark.demo.service;
+
+import com.spark.demo.model.OutboxEvent;
+import com.spark.demo.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers {@link OutboxEvent}s to their {@link OutboxDestination}s.
+ *
+ * <p>Each poll claims up to {@code batch-size} due events in a short transaction
+ * ({@code FOR UPDATE SKIP LOCKED}, so several instances split the work instead of queueing on
+ * each other) and leases them by pushing {@code available_at} forward. Delivery then happens
+ * with no transaction or connection held: one call per destination carrying the newest event of
+ * each claimed aggregate. On success everything up to that event is deleted; on failure the
+ * claimed events come back after an exponential backoff. An instance that dies mid-delivery
+ * simply lets the lease run out. {@link #requestFlush} runs a round early, off the poll schedule.
+ *
+ * <p>Delivery is at-least-once; receivers upsert the latest state, which makes the effect exactly-once.
+ *
+ * <p>The outbox (OutboxEvent, OutboxEventRepository, OutboxService, OutboxDestination and this
+ * relay) is deliberately copied into electronics-store rather than shared: the two services have
+ * no common library. The copies differ only in package and logger declaration; change both.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final int MAX_ROUNDS_PER_POLL = 20;
+
+    private final OutboxEventRepository outboxRepo;
+    private final TransactionTemplate tx;
+    private final Map<String, OutboxDestination> destinations;
+    private final int batchSize;
+    private final long leaseMs;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "outbox-flush");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    public OutboxRelay(OutboxEventRepository outboxRepo,
+                       PlatformTransactionManager transactionManager,
+                       List<OutboxDestination> destinations,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.lease-ms:60000}") long leaseMs,
+                       @Value("${outbox.relay.base-backoff-ms:1000}") long baseBackoffMs,
+                       @Value("${outbox.relay.max-backoff-ms:300000}") long maxBackoffMs) {
+        this.outboxRepo = outboxRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.destinations = destinations.stream()
+                .collect(Collectors.toMap(OutboxDestination::name, Function.identity()));
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseMs = Math.max(1_000, leaseMs);
+        this.baseBackoffMs = Math.max(1, baseBackoffMs);
+        this.maxBackoffMs = Math.max(this.baseBackoffMs, maxBackoffMs);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-ms:1000}")
+    public void relay() {
+        // keep going while batches come back full, but leave room for the next poll's schedule
+        for (int round = 0; round < MAX_ROUNDS_PER_POLL; round++) {
+            if (relayOnce(Instant.now()) < batchSize) return;
+        }
+    }
+
+    /**
+     * Delivers a batch now instead of at the next poll, including events that would only become
+     * due within {@code lookahead}. Requests made while one is still queued are merged into it.
+     */
+    public void requestFlush(Duration lookahead) {
+        if (!flushRequested.compareAndSet(false, true)) return;
+        flusher.execute(() -> {
+            flushRequested.set(false);
+            try {
+                relayOnce(Instant.now().plus(lookahead));
+            } catch (RuntimeException e) {
+                log.warn("Early outbox flush failed; the next poll will retry: {}", e.toString());
+            }
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.shutdownNow();
+    }
+
+    /** Claims and delivers one batch of events due by {@code dueBy}; returns how many were claimed. */
+    int relayOnce(Instant dueBy) {
+        Instant now = Instant.now();
+        List<OutboxEvent> heads = tx.execute(status -> {
+            List<Long> ids = outboxRepo.lockDueHeads(dueBy, batchSize);
+            if (ids.isEmpty()) return List.<OutboxEvent>of();
+            outboxRepo.lease(ids, now.plusMillis(leaseMs));
+            return outboxRepo.findAllById(ids);
+        });
+        if (heads == null || heads.isEmpty()) return 0;
+
+        Map<String, List<OutboxEvent>> byDestination = heads.stream()
+                .collect(Collectors.groupingBy(OutboxEvent::getDestination, LinkedHashMap::new, Collectors.toList()));
+        byDestination.forEach(this::deliver);
+        return heads.size();
+    }
+
+    private void deliver(String name, List<OutboxEvent> heads) {
+        OutboxDestination destination = destinations.get(name);
+        if (destination == null) {
+            retryLater(heads, "No outbox destination named '" + name + "'");
+            return;
+        }
+
+        // events enqueued after the claim are included too: their aggregate's head is leased to us
+        List<OutboxEvent> latest = outboxRepo.findLatest(name, heads.stream().map(OutboxEvent::getAggregateId).toList());
+        if (latest.isEmpty()) return;
+        try {
+            destination.deliver(latest);
+        } catch (Exception e) {
+            retryLater(heads, e.toString());
+            return;
+        }
+        tx.executeWithoutResult(status -> {
+            for (OutboxEvent e : latest) outboxRepo.deleteDelivered(name, e.getAggregateId(), e.getId());
+        });
+        log.debug("Delivered {} outbox event(s) to {}", latest.size(), name);
+    }
+
+    private void retryLater(List<OutboxEvent> heads, String error) {
+        Instant now = Instant.now();
+        tx.executeWithoutResult(status -> {
+            for (OutboxEvent e : heads) outboxRepo.scheduleRetry(e.getId(), now.plusMillis(backoffMs(e.getAttempts())), error);
+        });
+        OutboxEvent first = heads.get(0);
+        log.warn("Outbox delivery to {} failed ({} event(s), attempt {}): {}",
+                first.getDestination(), heads.size(), first.getAttempts() + 1, error);
+    }
+
+    // base * 2^attempts, capped, with ±20% jitter so a recovering peer is not hit by every event at once
+    private long backoffMs(int attempts) {
+        long delay = attempts >= 30 ? maxBackoffMs : Math.min(maxBackoffMs, baseBackoffMs << attempts);
+        return delay + (long) (delay * (ThreadLocalRandom.current().nextDouble(-0.2, 0.2)));
+    }
+}
@@ -0,0 +1,53 @@
+package com.spark.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spark.demo.model.OutboxEvent;
+import com.spark.demo.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/** Records notifications for other services as part of the caller's transaction. */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxRepo;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Joins the surrounding transaction, so the event exists if and only if the change it
+     * describes commits. Nothing is sent here; see {@link OutboxRelay}.
+     */
+    @Transactional
+    public void enqueue(String destination, String eventType, UUID aggregateId, Object payload) {
+        enqueue(destination, eventType, aggregateId, payload, Duration.ZERO);
+    }
+
+    /**
+     * Like {@link #enqueue(String, String, UUID, Object)}, but not delivered before {@code delay}
+     * has passed. Later events for the same aggregate within that window go out with it as one.
+     */
+    @Transactional
+    public void enqueue(String destination, String eventType, UUID aggregateId, Object payload, Duration delay) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + eventType, e);
+        }
+        outboxRepo.save(OutboxEvent.builder()
+                .destination(destination)
+                .eventType(eventType)
+                .aggregateId(aggregateId)
+                .payload(json)
+                .attempts(0)
+                .availableAt(Instant.now().plus(delay))
+                .build());
+    }
+}
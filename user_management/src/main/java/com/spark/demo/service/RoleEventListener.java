@@ -0,0 +1,85 @@
+package com.spark.demo.service;
+
+import com.spark.demo.config.AmqpConfig;
+import com.spark.demo.dto.InternalUserSyncUpdate;
+import com.spark.demo.model.Role;
+import com.spark.demo.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.UUID;
+
+/**
+ * Applies role changes published by the store (brand approval makes a user BRAND_SELLER). It
+ * does the same as POST /internal/sync/users. Setting a role is idempotent, so redelivered
+ * messages do no harm. Messages that can never apply are logged and acknowledged.
+ *
+ * A transient database failure requeues the message after a pause. Any other failure rejects it,
+ * and the broker dead-letters it (see {@link AmqpConfig}), so one bad message cannot block the
+ * queue.
+ */
+@Component
+public class RoleEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleEventListener.class);
+
+    private final UserRepository userRepository;
+    private final long requeueBackoffMs;
+
+    public RoleEventListener(UserRepository userRepository,
+                             @Value("${sync.amqp.requeue-backoff-ms:1000}") long requeueBackoffMs) {
+        this.userRepository = userRepository;
+        this.requeueBackoffMs = requeueBackoffMs;
+    }
+
+    @RabbitListener(id = "roleEvents", queues = AmqpConfig.ROLE_SYNC_QUEUE)
+    public void onRoleChanged(InternalUserSyncUpdate update) {
+        if (update == null || update.id() == null || update.role() == null) {
+            log.warn("Ignoring role event without id or role: {}", update);
+            return;
+        }
+        Role role;
+        UUID userId;
+        try {
+            role = Role.valueOf(update.role());
+            userId = UUID.fromString(update.id());
+        } catch (IllegalArgumentException e) {
+            log.error("Ignoring malformed role event {}: {}", update, e.getMessage());
+            return;
+        }
+
+        try {
+            userRepository.findById(userId).ifPresentOrElse(user -> {
+                if (user.getRole() == role) return;
+                user.setRole(role);
+                userRepository.save(user);
+                log.info("Role of user {} set to {} by the store", userId, role);
+            }, () -> log.warn("Role event for unknown user {}", userId));
+        } catch (RuntimeException e) {
+            if (!isTransient(e)) throw e;
+            log.warn("Transient failure applying role event for {}, requeueing: {}", userId, e.toString());
+            try {
+                Thread.sleep(requeueBackoffMs);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            throw new ImmediateRequeueAmqpException("Transient failure; role event requeued", e);
+        }
+    }
+
+    /** The database is unreachable or busy: the same event should succeed later. */
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+}
@@ -0,0 +1,71 @@
+package com.spark.demo.service;
+
+import com.spark.demo.config.AmqpConfig;
+import com.spark.demo.model.OutboxEvent;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox events to the user events exchange and waits for publisher confirms.
+ * Messages are persistent and mandatory. An event counts as sent only once the broker has
+ * acknowledged it and routed it to at least one queue. A message with no queue yet fails the
+ * batch too, so the outbox keeps it until the consumer has declared its queue.
+ */
+@Component
+public class UserEventPublisher {
+
+    public static final String AGGREGATE_ID_HEADER = "aggregate-id";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeoutMs;
+
+    public UserEventPublisher(RabbitTemplate rabbitTemplate,
+                              @Value("${sync.amqp.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /** Sends all events first, then waits for their confirms, so one batch costs about one round trip. */
+    public void publish(List<OutboxEvent> events) throws Exception {
+        List<CorrelationData> pending = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            MessageProperties props = new MessageProperties();
+            props.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            props.setContentEncoding(StandardCharsets.UTF_8.name());
+            props.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+            props.setMessageId(String.valueOf(event.getId()));
+            if (event.getCreatedAt() != null) props.setTimestamp(Date.from(event.getCreatedAt()));
+            props.setHeader(AGGREGATE_ID_HEADER, event.getAggregateId().toString());
+            Message message = new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), props);
+
+            CorrelationData correlation = new CorrelationData(String.valueOf(event.getId()));
+            rabbitTemplate.send(AmqpConfig.USER_EVENTS_EXCHANGE, event.getEventType(), message, correlation);
+            pending.add(correlation);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (CorrelationData correlation : pending) {
+            CorrelationData.Confirm confirm = correlation.getFuture()
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (!confirm.isAck()) {
+                throw new AmqpException("Broker did not accept event " + correlation.getId() + ": " + confirm.getReason());
+            }
+            if (correlation.getReturned() != null) {
+                throw new AmqpException("Event " + correlation.getId() + " reached no queue: "
+                        + correlation.getReturned().getReplyText());
+            }
+        }
+    }
+}
@@ -1,36 +1,57 @@
 package com.spark.demo.service;
 
 import com.spark.demo.dto.UserSyncDto;
+import com.spark.demo.model.OutboxEvent;
 import com.spark.demo.model.User;
-import lombok.RequiredArgsConstructor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
-import org.springframework.http.*;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps the store's copy of users in step. notifyUpsert/notifyDelete only write an outbox event
+ * (in the caller's transaction, if any); {@link OutboxRelay} calls {@link #deliver} afterwards,
+ * which publishes to the broker ({@link UserEventPublisher}). The store consumes at its own pace,
+ * so neither its availability nor the broker's holds up a request here.
+ *
+ * Events are coalesced per user: each waits {@code sync.coalesce.window-ms} before it is due,
+ * and whatever else happened to that user meanwhile (an OAuth login saves the user twice) goes
+ * out as one upsert of the latest state. The relay polls every {@code outbox.relay.poll-ms};
+ * once {@code sync.coalesce.max-items} events have committed since the last early flush, a
+ * flush is requested right away.
+ */
 @Component
-@RequiredArgsConstructor
-public class UserSyncNotifier {
+public class UserSyncNotifier implements OutboxDestination {
 
-    private static final Logger log = LoggerFactory.getLogger(UserSyncNotifier.class);
+    public static final String DESTINATION = "store";
+    public static final String USER_UPSERTED = "user.upserted";
+    public static final String USER_DELETED = "user.deleted";
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final OutboxService outboxService;
+    private final UserEventPublisher publisher;
+    private final ObjectProvider<OutboxRelay> relay; // the relay depends on this destination
+    private final Duration coalesceWindow;
+    private final int flushItems;
+    private final AtomicInteger sinceFlush = new AtomicInteger();
 
-    @Value("${sync.store-base-url}")
-    private String storeBaseUrl;
-
-    @Value("${sync.shared-secret}")
-    private String sharedSecret;
+    public UserSyncNotifier(OutboxService outboxService,
+                            UserEventPublisher publisher,
+                            ObjectProvider<OutboxRelay> relay,
+                            @Value("${sync.coalesce.window-ms:250}") long coalesceWindowMs,
+                            @Value("${sync.coalesce.max-items:100}") int flushItems) {
+        this.outboxService = outboxService;
+        this.publisher = publisher;
+        this.relay = relay;
+        this.coalesceWindow = Duration.ofMillis(Math.max(0, coalesceWindowMs));
+        this.flushItems = Math.max(1, flushItems);
+    }
 
-    @Retryable(value = RestClientException.class, backoff = @Backoff(delay = 2000, multiplier = 2, maxDelay = 20000))
     public void notifyUpsert(User user) {
         UserSyncDto dto = new UserSyncDto(
                 user.getId(),
@@ -40,35 +61,42 @@ public class UserSyncNotifier {
                 user.getTokenVersion(),
                 false
         );
+        outboxService.enqueue(DESTINATION, USER_UPSERTED, user.getId(), dto, coalesceWindow);
+        countAfterCommit();
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(sharedSecret);
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        HttpEntity<UserSyncDto> req = new HttpEntity<>(dto, headers);
+    public void notifyDelete(UUID userId) {
+        outboxService.enqueue(DESTINATION, USER_DELETED, userId, userId, coalesceWindow);
+        countAfterCommit();
+    }
 
-        String url = storeBaseUrl + "/internal/sync/users";
-        restTemplate.postForEntity(url, req, Void.class);
-        log.debug("Synced user upsert to store service: {}", user.getId());
+    private void countAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            count();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                count();
+            }
+        });
     }
 
-    @Recover
-    public void recover(RestClientException ex, User user) {
-        log.error("Failed to sync upsert for user {} after retries", user.getId(), ex);
-        // Optionally enqueue to a durable retry queue or alert.
+    private void count() {
+        if (sinceFlush.incrementAndGet() < flushItems) return;
+        sinceFlush.set(0);
+        relay.getObject().requestFlush(coalesceWindow);
     }
 
-    @Retryable(value = RestClientException.class, backoff = @Backoff(delay = 2000, multiplier = 2, maxDelay = 20000))
-    public void notifyDelete(UUID userId) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(sharedSecret);
-        HttpEntity<Void> req = new HttpEntity<>(headers);
-        String url = storeBaseUrl + "/internal/sync/users/" + userId;
-        restTemplate.exchange(url, HttpMethod.DELETE, req, Void.class);
-        log.debug("Synced user deletion to store service: {}", userId);
+    @Override
+    public String name() {
+        return DESTINATION;
     }
 
-    @Recover
-    public void recoverDelete(RestClientException ex, UUID userId) {
-        log.error("Failed to sync delete for user {} after retries", userId, ex);
+    /** Newest event per user; the store applies both event types idempotently, so a resent batch is harmless. */
+    @Override
+    public void deliver(List<OutboxEvent> events) throws Exception {
+        publisher.publish(events);
     }
 }
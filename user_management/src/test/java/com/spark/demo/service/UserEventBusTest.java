@@ -0,0 +1,218 @@
+package com.spark.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spark.demo.config.AmqpConfig;
+import com.spark.demo.dto.InternalUserSyncUpdate;
+import com.spark.demo.model.OutboxEvent;
+import com.spark.demo.model.Role;
+import com.spark.demo.model.User;
+import com.spark.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.test.TestRabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The user event bus without a running broker. Publishing goes through a RabbitTemplate stand-in
+ * that answers each send with a confirm (ack, nack or returned). Consuming goes through
+ * TestRabbitTemplate, which hands messages sent to a queue name straight to its listener.
+ */
+@SpringJUnitConfig
+@TestPropertySource(properties = "sync.amqp.requeue-backoff-ms=0")
+class UserEventBusTest {
+
+	@Configuration
+	@EnableRabbit
+	@Import({AmqpConfig.class, RoleEventListener.class})
+	static class Config {
+
+		@Bean
+		ObjectMapper objectMapper() {
+			return new ObjectMapper();
+		}
+
+		@Bean
+		ConnectionFactory connectionFactory() {
+			return mock(ConnectionFactory.class);
+		}
+
+		@Bean
+		SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory,
+																			MessageConverter converter) {
+			SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+			factory.setConnectionFactory(connectionFactory);
+			factory.setMessageConverter(converter);
+			factory.setDefaultRequeueRejected(false); // as spring.rabbitmq.listener.simple.default-requeue-rejected
+			factory.setAutoStartup(false); // TestRabbitTemplate invokes the listeners itself
+			return factory;
+		}
+
+		@Bean
+		TestRabbitTemplate testRabbitTemplate(ConnectionFactory connectionFactory, MessageConverter converter) {
+			TestRabbitTemplate template = new TestRabbitTemplate(connectionFactory);
+			template.setMessageConverter(converter);
+			return template;
+		}
+	}
+
+	@Autowired
+	private TestRabbitTemplate broker;
+
+	@MockitoBean
+	private UserRepository userRepository;
+
+	// ---- consuming role changes ----
+
+	@Test
+	void roleChangeFromStoreIsApplied() {
+		User user = User.builder().id(UUID.randomUUID()).email("a@b.c").name("A").role(Role.USER).build();
+		given(userRepository.findById(user.getId())).willReturn(Optional.of(user));
+
+		broker.convertAndSend(AmqpConfig.ROLE_SYNC_QUEUE,
+				new InternalUserSyncUpdate(user.getId().toString(), "BRAND_SELLER", null, null));
+
+		assertEquals(Role.BRAND_SELLER, user.getRole());
+		verify(userRepository).save(user);
+	}
+
+	@Test
+	void malformedOrRedeliveredRoleChangeIsAcknowledgedWithoutEffect() {
+		User user = User.builder().id(UUID.randomUUID()).email("a@b.c").name("A").role(Role.BRAND_SELLER).build();
+		given(userRepository.findById(user.getId())).willReturn(Optional.of(user));
+
+		broker.convertAndSend(AmqpConfig.ROLE_SYNC_QUEUE,
+				new InternalUserSyncUpdate(user.getId().toString(), "NOT_A_ROLE", null, null));
+		broker.convertAndSend(AmqpConfig.ROLE_SYNC_QUEUE,
+				new InternalUserSyncUpdate(user.getId().toString(), "BRAND_SELLER", null, null));
+
+		assertEquals(Role.BRAND_SELLER, user.getRole());
+		verify(userRepository, never()).save(any());
+	}
+
+	@Test
+	void transientDatabaseFailureRequeuesTheRoleChange() {
+		UUID userId = UUID.randomUUID();
+		given(userRepository.findById(userId)).willThrow(new QueryTimeoutException("canceling statement due to lock timeout"));
+
+		Exception e = assertThrows(Exception.class, () -> broker.convertAndSend(AmqpConfig.ROLE_SYNC_QUEUE,
+				new InternalUserSyncUpdate(userId.toString(), "BRAND_SELLER", null, null)));
+
+		assertTrue(causedBy(e, ImmediateRequeueAmqpException.class));
+	}
+
+	@Test
+	void permanentFailureIsRejectedForTheDeadLetterQueue() {
+		User user = User.builder().id(UUID.randomUUID()).email("a@b.c").name("A").role(Role.USER).build();
+		given(userRepository.findById(user.getId())).willReturn(Optional.of(user));
+		given(userRepository.save(user)).willThrow(new DataIntegrityViolationException("check constraint"));
+
+		Exception e = assertThrows(Exception.class, () -> broker.convertAndSend(AmqpConfig.ROLE_SYNC_QUEUE,
+				new InternalUserSyncUpdate(user.getId().toString(), "BRAND_SELLER", null, null)));
+
+		// no immediate requeue: with default-requeue-rejected=false the broker dead-letters it
+		assertTrue(causedBy(e, DataIntegrityViolationException.class));
+		assertFalse(causedBy(e, ImmediateRequeueAmqpException.class));
+	}
+
+	// ---- publishing with confirms ----
+
+	@Test
+	void publishesEachEventWithItsTypeAsRoutingKey() throws Exception {
+		RabbitTemplate rabbit = mock(RabbitTemplate.class);
+		List<String> routingKeys = new ArrayList<>();
+		List<String> bodies = new ArrayList<>();
+		willAnswer(inv -> {
+			routingKeys.add(inv.getArgument(1));
+			bodies.add(new String(inv.<Message>getArgument(2).getBody(), StandardCharsets.UTF_8));
+			inv.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(true, null));
+			return null;
+		}).given(rabbit).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+		UUID userId = UUID.randomUUID();
+		new UserEventPublisher(rabbit, 1_000).publish(List.of(
+				event(1, UserSyncNotifier.USER_UPSERTED, userId, "{\"id\":\"" + userId + "\"}"),
+				event(2, UserSyncNotifier.USER_DELETED, userId, "\"" + userId + "\"")));
+
+		assertEquals(List.of(UserSyncNotifier.USER_UPSERTED, UserSyncNotifier.USER_DELETED), routingKeys);
+		assertEquals("\"" + userId + "\"", bodies.get(1));
+		verify(rabbit).send(eq(AmqpConfig.USER_EVENTS_EXCHANGE), eq(UserSyncNotifier.USER_UPSERTED),
+				any(Message.class), any(CorrelationData.class));
+	}
+
+	@Test
+	void nackedOrUnroutedBatchFailsSoTheOutboxRetriesIt() {
+		RabbitTemplate nacking = mock(RabbitTemplate.class);
+		willAnswer(inv -> {
+			inv.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(false, "overflow"));
+			return null;
+		}).given(nacking).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+		RabbitTemplate unrouted = mock(RabbitTemplate.class);
+		willAnswer(inv -> {
+			CorrelationData correlation = inv.getArgument(3);
+			correlation.setReturned(new ReturnedMessage(inv.getArgument(2), 312, "NO_ROUTE", inv.getArgument(0), inv.getArgument(1)));
+			correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+			return null;
+		}).given(unrouted).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+		List<OutboxEvent> batch = List.of(event(1, UserSyncNotifier.USER_UPSERTED, UUID.randomUUID(), "{}"));
+		assertThrows(AmqpException.class, () -> new UserEventPublisher(nacking, 1_000).publish(batch));
+		assertThrows(AmqpException.class, () -> new UserEventPublisher(unrouted, 1_000).publish(batch));
+	}
+
+	private static boolean causedBy(Throwable e, Class<? extends Throwable> type) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (type.isInstance(t)) return true;
+		}
+		return false;
+	}
+
+	private static OutboxEvent event(long id, String type, UUID aggregateId, String payload) {
+		return OutboxEvent.builder()
+				.id(id)
+				.destination(UserSyncNotifier.DESTINATION)
+				.eventType(type)
+				.aggregateId(aggregateId)
+				.payload(payload)
+				.availableAt(Instant.now())
+				.createdAt(Instant.now())
+				.build();
+	}
+}